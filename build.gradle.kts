@@ -16,6 +16,7 @@ plugins {
   alias(libs.plugins.indra.checkstyle)
   alias(libs.plugins.indra.git)
   alias(libs.plugins.jib)
+  alias(libs.plugins.jmh)
   alias(libs.plugins.spotless)
   alias(libs.plugins.spring.dependency.management)
   alias(libs.plugins.spring.boot)
@@ -27,13 +28,28 @@ repositories {
 
 indra {
   javaVersions {
-    target(17)
+    target(21)
   }
 
   github("PaperMC", "bibliothek")
   mitLicense()
 }
 
+val loadTest: SourceSet by sourceSets.creating {
+  compileClasspath += sourceSets.main.get().output
+  runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations {
+  named(loadTest.implementationConfigurationName) { extendsFrom(implementation.get()) }
+  named(loadTest.runtimeOnlyConfigurationName) { extendsFrom(runtimeOnly.get()) }
+}
+
+jmh {
+  // allocation per operation matters as much as time per operation
+  profilers.add("gc")
+}
+
 spotless {
   java {
     endWithNewline()
@@ -54,7 +70,8 @@ jib {
   }
 
   from {
-    image = "azul/zulu-openjdk-alpine:${indra.javaVersions().target().get()}-jre"
+    // glibc based: the brotli natives cannot be loaded on alpine's musl
+    image = "azul/zulu-openjdk:${indra.javaVersions().target().get()}-jre"
     platforms {
       // We can only build multi-arch images when pushing to a registry, not when building locally
       val requestedTasks = gradle.startParameter.taskNames
@@ -96,15 +113,25 @@ jib {
 dependencies {
   annotationProcessor("org.springframework.boot", "spring-boot-configuration-processor")
   checkstyle(libs.stylecheck)
+  implementation(libs.brotli4j)
+  implementation(libs.jbsdiff)
   implementation(libs.jetbrains.annotations)
   implementation(libs.springdoc.openapi.starter.webmvc.ui)
   implementation("org.springframework.boot", "spring-boot-starter-data-mongodb")
   implementation("org.springframework.boot", "spring-boot-starter-validation")
   implementation("org.springframework.boot", "spring-boot-starter-web")
   implementation("org.springframework.boot", "spring-boot-starter-actuator")
+  // the image is built for both architectures, gradle does not pick natives from maven profiles
+  runtimeOnly(libs.brotli4j.native.linux.arm)
+  runtimeOnly(libs.brotli4j.native.linux.amd)
+  // mock requests and responses for the download benchmarks
+  "jmhImplementation"("org.springframework", "spring-test")
+  "loadTestImplementation"(libs.embed.mongo)
+  "loadTestImplementation"(libs.hdrhistogram)
   testImplementation("org.springframework.boot", "spring-boot-starter-test") {
     exclude(group = "org.junit.vintage", module = "junit-vintage-engine")
   }
+  testRuntimeOnly("org.junit.platform", "junit-platform-launcher")
 }
 
 tasks {
@@ -129,6 +156,16 @@ tasks {
     }
   }
 
+  register<JavaExec>("loadTest") {
+    description = "Runs bibliothek against a synthetic catalog and reports latency percentiles per endpoint"
+    group = "verification"
+    classpath = loadTest.runtimeClasspath
+    mainClass = "io.papermc.bibliothek.loadtest.LoadTest"
+    // ./gradlew loadTest -DloadTest.projects=20 -DloadTest.versions=200 -DloadTest.builds=5000
+    // ./gradlew loadTest -DloadTest.transfers=blocking,async,sendfile -DloadTest.fileSize=52428800
+    systemProperties(System.getProperties().filterKeys { (it as String).startsWith("loadTest.") }.mapKeys { it.key as String })
+  }
+
   sequenceOf(jib, jibDockerBuild, jibBuildTar).forEach {
     it.configure {
       finalizedBy(outputImageId.name)
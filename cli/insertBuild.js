@@ -1,3 +1,4 @@
+const crypto = require("crypto");
 const fs = require("fs");
 const gitlog = require("gitlog").default;
 const {MongoClient} = require("mongodb");
@@ -15,6 +16,8 @@ const argv = yargs
   .option("download", optionOf("string"))
   .option("buildChannel", optionOf("string", false))
   .default("buildChannel", "default")
+  .option("storageLayout", optionOf("string", false))
+  .default("storageLayout", "tree")
   .help()
   .version(false)
   .argv;
@@ -29,6 +32,7 @@ const storagePath = argv.storagePath;
 // type:path:hash:name
 let downloads = argv.download;
 const buildChannel = argv.buildChannel.toUpperCase();
+const storageLayout = argv.storageLayout;
 
 // Validate buildChannel
 if (buildChannel !== "DEFAULT" && buildChannel !== "EXPERIMENTAL") {
@@ -41,6 +45,12 @@ if(typeof downloads === "string") {
   downloads = [tempDownloads];
 }
 
+// Validate storageLayout, this must match app.storageLayout
+if (storageLayout !== "tree" && storageLayout !== "content-addressed") {
+  console.log(`Invalid storageLayout: ${storageLayout}`);
+  return;
+}
+
 // Validate downloads
 let foundPrimary = false;
 for(let download of downloads) {
@@ -64,26 +74,44 @@ const downloadsPath = path.join(
   buildNumber.toString()
 );
 
-if(!fs.existsSync(downloadsPath)) {
-  fs.mkdirSync(downloadsPath, {
-    recursive: true
-  });
+function copyDownload(source, name, hash) {
+  if(storageLayout === "content-addressed") {
+    if(!/^[a-f0-9]{64}$/.test(hash)) {
+      throw new Error(`Invalid sha256: ${hash}`);
+    }
+    const target = path.join(storagePath, "sha256", hash.substring(0, 2), hash);
+    if(fs.existsSync(target)) {
+      // identical files are only stored once
+      return;
+    }
+    fs.mkdirSync(path.dirname(target), {
+      recursive: true
+    });
+    // copy next to the target first, so the server never sees a partial file
+    fs.copyFileSync(source, target + ".tmp");
+    // the file is stored under its hash, so the hash it was given must be the one of what was copied
+    const actual = crypto.createHash("sha256").update(fs.readFileSync(target + ".tmp")).digest("hex");
+    if(actual !== hash) {
+      fs.unlinkSync(target + ".tmp");
+      throw new Error(`sha256 mismatch for ${source}: expected ${hash}, got ${actual}`);
+    }
+    fs.renameSync(target + ".tmp", target);
+  } else {
+    if(!fs.existsSync(downloadsPath)) {
+      fs.mkdirSync(downloadsPath, {
+        recursive: true
+      });
+    }
+    fs.copyFileSync(source, path.join(downloadsPath, name));
+  }
 }
 
 for(let download of downloads) {
   const info = download.split(":");
   if(info.length === 3) {
-    const downloadPath = path.join(
-      downloadsPath,
-      projectName + "-" + versionName + "-" + buildNumber + ".jar"
-    );
-    fs.copyFileSync(info[1], downloadPath);
+    copyDownload(info[1], projectName + "-" + versionName + "-" + buildNumber + ".jar", info[2]);
   } else if(info.length === 4) {
-    const downloadPath = path.join(
-      downloadsPath,
-      info[3]
-    );
-    fs.copyFileSync(info[1], downloadPath);
+    copyDownload(info[1], info[3], info[2]);
   }
 }
 
@@ -166,12 +194,12 @@ async function run() {
     for(let download of downloads) {
       const info = download.split(":");
       if(info.length === 3) {
-        buildDownloads[info[0].replace(".", ":")] = {
+        buildDownloads[info[0].replace(/\./g, ":")] = {
           "name": projectName + "-" + versionName + "-" + buildNumber + ".jar",
           "sha256": info[2]
         };
       } else if(info.length === 4) {
-        buildDownloads[info[0].replace(".", ":")] = {
+        buildDownloads[info[0].replace(/\./g, ":")] = {
           "name": info[3],
           "sha256": info[2]
         };
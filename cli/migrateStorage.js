@@ -0,0 +1,108 @@
+const crypto = require("crypto");
+const fs = require("fs");
+const {MongoClient} = require("mongodb");
+const path = require("path");
+const yargs = require("yargs");
+
+// Moves a storage path from the tree layout (project/version/build/name) to the
+// content-addressed layout (sha256/ab/abcdef...). Files are hard linked, so the tree
+// keeps working until app.storageLayout is switched, and can be removed afterwards.
+const argv = yargs
+  .option("storagePath", optionOf("string"))
+  .option("verify", optionOf("boolean", false))
+  .default("verify", true)
+  .option("dryRun", optionOf("boolean", false))
+  .default("dryRun", false)
+  .help()
+  .alias("help", "h")
+  .version(false)
+  .argv;
+
+const storagePath = argv.storagePath;
+
+const client = new MongoClient(process.env.MONGODB_URL || "mongodb://localhost:27017", {
+  useUnifiedTopology: true
+});
+
+async function run() {
+  const stats = {linked: 0, copied: 0, deduplicated: 0, missing: 0, mismatched: 0};
+  try {
+    await client.connect();
+    const database = client.db("library"); // "library" instead of "bibliothek" is intentional here
+    const projects = new Map();
+    for await (const project of database.collection("projects").find()) {
+      projects.set(project._id.toHexString(), project.name);
+    }
+    const versions = new Map();
+    for await (const version of database.collection("versions").find()) {
+      versions.set(version._id.toHexString(), version.name);
+    }
+    const builds = database.collection("builds").find({}, {projection: {project: 1, version: 1, number: 1, downloads: 1}});
+    for await (const build of builds) {
+      for (const download of Object.values(build.downloads)) {
+        const source = path.join(
+          storagePath,
+          projects.get(build.project.toHexString()),
+          versions.get(build.version.toHexString()),
+          build.number.toString(),
+          download.name
+        );
+        migrate(source, download.sha256, stats);
+      }
+    }
+  } finally {
+    await client.close();
+  }
+  console.log(`Linked ${stats.linked}, copied ${stats.copied}, already stored ${stats.deduplicated}, missing ${stats.missing}, hash mismatches ${stats.mismatched}`);
+}
+
+function migrate(source, hash, stats) {
+  if (!/^[a-f0-9]{64}$/.test(hash)) {
+    console.log(`Invalid sha256 for ${source}: ${hash}`);
+    stats.mismatched++;
+    return;
+  }
+  const target = path.join(storagePath, "sha256", hash.substring(0, 2), hash);
+  if (fs.existsSync(target)) {
+    stats.deduplicated++;
+    return;
+  }
+  if (!fs.existsSync(source)) {
+    console.log(`Missing ${source}`);
+    stats.missing++;
+    return;
+  }
+  if (argv.verify) {
+    const actual = crypto.createHash("sha256").update(fs.readFileSync(source)).digest("hex");
+    if (actual !== hash) {
+      console.log(`Hash mismatch for ${source}: expected ${hash}, was ${actual}`);
+      stats.mismatched++;
+      return;
+    }
+  }
+  if (argv.dryRun) {
+    stats.linked++;
+    return;
+  }
+  fs.mkdirSync(path.dirname(target), {
+    recursive: true
+  });
+  try {
+    fs.linkSync(source, target);
+    stats.linked++;
+  } catch (e) {
+    // hard links do not work across file systems
+    fs.copyFileSync(source, target + ".tmp");
+    fs.renameSync(target + ".tmp", target);
+    stats.copied++;
+  }
+}
+
+run().catch(console.dir);
+
+function optionOf(type, required = true) {
+  return {
+    type: type,
+    required: required
+  };
+}
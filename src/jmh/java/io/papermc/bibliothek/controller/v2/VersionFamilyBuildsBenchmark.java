@@ -0,0 +1,127 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.controller.v2;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.Project;
+import io.papermc.bibliothek.database.model.Version;
+import io.papermc.bibliothek.database.model.VersionFamily;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Compares materializing a version family build list before serializing it against streaming
+ * it build by build, as {@link VersionFamilyBuildsController} does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class VersionFamilyBuildsBenchmark {
+  private static final int VERSIONS = 10;
+  @Param({"100", "1000", "10000"})
+  private int builds;
+  // configured like the application's mapper
+  private final ObjectMapper json = Jackson2ObjectMapperBuilder.json()
+    .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+    .build();
+  private Project project;
+  private VersionFamily family;
+  private Map<ObjectId, Version> versions;
+  private List<Build> list;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(0);
+    final Instant start = Instant.parse("2021-06-01T00:00:00Z");
+    this.project = new Project(new ObjectId(), "paper", "Paper");
+    this.family = new VersionFamily(new ObjectId(), this.project._id(), "1.17", start);
+    this.versions = new LinkedHashMap<>();
+    for (int i = 0; i < VERSIONS; i++) {
+      final Version version = new Version(new ObjectId(), this.project._id(), this.family._id(), "1.17." + i, start.plusSeconds(i * 86400L));
+      this.versions.put(version._id(), version);
+    }
+    final List<ObjectId> ids = List.copyOf(this.versions.keySet());
+    this.list = new ArrayList<>(this.builds);
+    for (int i = 0; i < this.builds; i++) {
+      final ObjectId version = ids.get(i * VERSIONS / this.builds);
+      final List<Build.Change> changes = new ArrayList<>();
+      for (int j = random.nextInt(4); j >= 0; j--) {
+        final String commit = HexFormat.of().formatHex(bytes(random, 20));
+        changes.add(new Build.Change(commit, "Fix issue #" + random.nextInt(10000), "Fix issue #" + random.nextInt(10000) + "\n\nA longer explanation of the change that was made."));
+      }
+      final String name = "paper-" + this.versions.get(version).name() + "-" + (i + 1) + ".jar";
+      final Map<String, Build.Download> downloads = Map.of(
+        "application", new Build.Download(name, HexFormat.of().formatHex(bytes(random, 32)))
+      );
+      this.list.add(new Build(new ObjectId(), this.project._id(), version, i + 1, start.plusSeconds(i * 600L), changes, downloads, Build.Channel.DEFAULT, i % 10 == 0));
+    }
+  }
+
+  @Benchmark
+  public void materialize() throws IOException {
+    final VersionFamilyBuildsController.VersionFamilyBuildsResponse response = VersionFamilyBuildsController.VersionFamilyBuildsResponse.from(this.project, this.family, this.versions, this.list);
+    this.json.writeValue(OutputStream.nullOutputStream(), response);
+  }
+
+  @Benchmark
+  public void stream() throws IOException {
+    try (final JsonGenerator generator = this.json.createGenerator(OutputStream.nullOutputStream(), JsonEncoding.UTF8)) {
+      VersionFamilyBuildsController.VersionFamilyBuildsResponse.write(generator, this.project, this.family, this.versions, this.list.stream());
+    }
+  }
+
+  private static byte[] bytes(final Random random, final int length) {
+    final byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+}
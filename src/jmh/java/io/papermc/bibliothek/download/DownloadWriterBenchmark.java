@@ -0,0 +1,154 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.download;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.papermc.bibliothek.configuration.AppConfiguration;
+import io.papermc.bibliothek.configuration.CacheConfiguration;
+import io.papermc.bibliothek.util.Validators;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Compares {@link DownloadWriter} against copying a {@link FileSystemResource} to the response,
+ * as downloads were served before.
+ *
+ * <p>Both write to a response that discards what it is given, outside of a container - so
+ * sendfile, which needs Tomcat, is not part of the comparison, and this measures the fallback
+ * path that copies through the JVM.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class DownloadWriterBenchmark {
+  private static final Validators VALIDATORS = new Validators(Validators.quote("benchmark"), Instant.EPOCH);
+  private static final CacheControl CACHE = CacheControl.maxAge(Duration.ofDays(7));
+  // a small plugin, a server jar, and a large modded server jar
+  @Param({"1048576", "52428800", "209715200"})
+  private int size;
+  private Path directory;
+  private Path file;
+  private HotArtifacts artifacts;
+  private DownloadWriter writer;
+
+  @Setup
+  public void setUp() throws IOException {
+    this.directory = Files.createTempDirectory("bibliothek-benchmark");
+    final byte[] contents = new byte[this.size];
+    new Random(0).nextBytes(contents);
+    this.file = Files.write(this.directory.resolve("paper-1.20.4-497.jar"), contents);
+    this.artifacts = new HotArtifacts(new CacheConfiguration(), new SimpleMeterRegistry());
+    this.writer = new DownloadWriter(new AppConfiguration(), this.artifacts);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    this.artifacts.destroy();
+    try (final Stream<Path> paths = Files.walk(this.directory)) {
+      for (final Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Benchmark
+  public long fileSystemResource() throws IOException {
+    final DiscardingResponse response = new DiscardingResponse();
+    final FileSystemResource resource = new FileSystemResource(this.file);
+    response.setContentLengthLong(resource.contentLength());
+    try (final InputStream in = resource.getInputStream()) {
+      return in.transferTo(response.getOutputStream());
+    }
+  }
+
+  @Benchmark
+  public long downloadWriter() throws IOException {
+    return this.writer.write(new MockHttpServletRequest("GET", "/"), new DiscardingResponse(), this.file, "paper-1.20.4-497.jar", VALIDATORS, CACHE);
+  }
+
+  @Benchmark
+  public long downloadWriterRange() throws IOException {
+    final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+    // resuming a download that stopped half way
+    request.addHeader(HttpHeaders.RANGE, "bytes=" + this.size / 2 + "-");
+    return this.writer.write(request, new DiscardingResponse(), this.file, "paper-1.20.4-497.jar", VALIDATORS, CACHE);
+  }
+
+  private static final class DiscardingResponse extends MockHttpServletResponse {
+    private final ServletOutputStream out = new ServletOutputStream() {
+      @Override
+      public void write(final int b) {
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len) {
+      }
+
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void setWriteListener(final WriteListener listener) {
+        throw new UnsupportedOperationException();
+      }
+    };
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+      return this.out;
+    }
+  }
+}
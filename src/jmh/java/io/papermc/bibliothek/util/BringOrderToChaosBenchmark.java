@@ -0,0 +1,79 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.util;
+
+import io.papermc.bibliothek.database.model.Version;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class BringOrderToChaosBenchmark {
+  @Param({"100", "1000", "10000"})
+  private int versions;
+  private List<Version> shuffled;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(0);
+    final ObjectId project = new ObjectId();
+    final ObjectId family = new ObjectId();
+    final Instant start = Instant.parse("2016-01-01T00:00:00Z");
+    final List<Version> versions = new ArrayList<>(this.versions);
+    for (int i = 0; i < this.versions; i++) {
+      // older versions were imported without a time, and are ordered by name instead
+      final Instant time = random.nextInt(10) == 0 ? null : start.plusSeconds(i * 3600L);
+      versions.add(new Version(new ObjectId(), project, family, "1." + i / 10 + "." + i % 10, time));
+    }
+    Collections.shuffle(versions, random);
+    this.shuffled = List.copyOf(versions);
+  }
+
+  @Benchmark
+  public List<Version> sort() {
+    final List<Version> versions = new ArrayList<>(this.shuffled);
+    versions.sort(Version.COMPARATOR);
+    return versions;
+  }
+}
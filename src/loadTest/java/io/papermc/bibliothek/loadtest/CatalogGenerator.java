@@ -0,0 +1,158 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.loadtest;
+
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.Project;
+import io.papermc.bibliothek.database.model.Version;
+import io.papermc.bibliothek.database.model.VersionFamily;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+/**
+ * Generates a synthetic catalog, and the files of the newest builds of every version.
+ */
+final class CatalogGenerator {
+  private static final int BATCH = 10_000;
+  private static final Instant START = Instant.parse("2016-01-01T00:00:00Z");
+  private static final String[] WORDS = {
+    "fix", "add", "remove", "update", "chunk", "entity", "player", "world", "packet", "tick",
+    "crash", "lighting", "redstone", "config", "api", "event", "inventory", "command", "async", "memory"
+  };
+  private final Settings settings;
+  private final MongoTemplate mongo;
+  private final Path storage;
+  private final Random random;
+
+  CatalogGenerator(final Settings settings, final MongoTemplate mongo, final Path storage) {
+    this.settings = settings;
+    this.mongo = mongo;
+    this.storage = storage;
+    this.random = new Random(settings.seed());
+  }
+
+  void generate() throws IOException {
+    this.ensureIndexes();
+    // every file has the same contents, only the names differ
+    final byte[] file = new byte[this.settings.fileSize()];
+    this.random.nextBytes(file);
+    final String sha256 = sha256(file);
+
+    final List<Build> batch = new ArrayList<>(BATCH);
+    for (int p = 0; p < this.settings.projects(); p++) {
+      final String projectName = Settings.projectName(p);
+      final Project project = this.mongo.insert(new Project(new ObjectId(), projectName, Character.toUpperCase(projectName.charAt(0)) + projectName.substring(1)));
+      VersionFamily family = null;
+      for (int v = 0; v < this.settings.versions(); v++) {
+        final Instant versionTime = START.plusSeconds(v * 86_400L * 7);
+        if (v % Settings.VERSIONS_PER_FAMILY == 0) {
+          family = this.mongo.insert(new VersionFamily(new ObjectId(), project._id(), Settings.familyName(v), versionTime));
+        }
+        final Version version = this.mongo.insert(new Version(new ObjectId(), project._id(), family._id(), Settings.versionName(v), versionTime));
+        for (int b = 1; b <= this.settings.builds(); b++) {
+          final String name = Settings.downloadName(p, v, b);
+          final boolean onDisk = b > this.settings.builds() - this.settings.files();
+          if (onDisk) {
+            final Path directory = Files.createDirectories(this.storage.resolve(projectName).resolve(version.name()).resolve(String.valueOf(b)));
+            Files.write(directory.resolve(name), file);
+          }
+          batch.add(new Build(
+            new ObjectId(),
+            project._id(),
+            version._id(),
+            b,
+            versionTime.plusSeconds(b * 600L),
+            this.changes(),
+            Map.of("application", new Build.Download(name, onDisk ? sha256 : this.hex(32))),
+            this.random.nextInt(20) == 0 ? Build.Channel.EXPERIMENTAL : Build.Channel.DEFAULT,
+            this.random.nextInt(10) == 0
+          ));
+          if (batch.size() == BATCH) {
+            this.mongo.insertAll(batch);
+            batch.clear();
+          }
+        }
+      }
+    }
+    if (!batch.isEmpty()) {
+      this.mongo.insertAll(batch);
+    }
+  }
+
+  // the application does not create indexes itself
+  private void ensureIndexes() {
+    final IndexResolver resolver = new MongoPersistentEntityIndexResolver((MongoMappingContext) this.mongo.getConverter().getMappingContext());
+    for (final Class<?> type : List.of(Project.class, VersionFamily.class, Version.class, Build.class)) {
+      resolver.resolveIndexFor(type).forEach(this.mongo.indexOps(type)::ensureIndex);
+    }
+  }
+
+  private List<Build.Change> changes() {
+    final List<Build.Change> changes = new ArrayList<>();
+    for (int i = this.random.nextInt(3); i >= 0; i--) {
+      final String summary = this.sentence(4 + this.random.nextInt(8));
+      changes.add(new Build.Change(this.hex(20), summary, summary + "\n\n" + this.sentence(20 + this.random.nextInt(40))));
+    }
+    return changes;
+  }
+
+  private String sentence(final int words) {
+    final StringBuilder sentence = new StringBuilder();
+    for (int i = 0; i < words; i++) {
+      if (i > 0) {
+        sentence.append(' ');
+      }
+      sentence.append(WORDS[this.random.nextInt(WORDS.length)]);
+    }
+    return sentence.toString();
+  }
+
+  private String hex(final int bytes) {
+    final byte[] value = new byte[bytes];
+    this.random.nextBytes(value);
+    return HexFormat.of().formatHex(value);
+  }
+
+  private static String sha256(final byte[] bytes) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.loadtest;
+
+import io.papermc.bibliothek.BibliothekApplication;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * Runs bibliothek against a synthetic catalog, and reports throughput and latency percentiles per endpoint.
+ *
+ * <p>Clients send their next request as soon as the previous one completes, so latencies are
+ * those of a closed system - compare runs with the same concurrency only.</p>
+ */
+public final class LoadTest {
+  private static final String DATABASE = "bibliothek-load-test";
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+  private final Settings settings;
+  private final URI base;
+  private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+  private final RequestMix mix;
+  private final Map<RequestMix.Endpoint, Recorder> latencies = new EnumMap<>(RequestMix.Endpoint.class);
+  private final Map<RequestMix.Endpoint, LongAdder> errors = new EnumMap<>(RequestMix.Endpoint.class);
+  private volatile boolean running = true;
+
+  private LoadTest(final Settings settings, final URI base) {
+    this.settings = settings;
+    this.base = base;
+    this.mix = new RequestMix(settings);
+    for (final RequestMix.Endpoint endpoint : RequestMix.Endpoint.values()) {
+      this.latencies.put(endpoint, new Recorder(3));
+      this.errors.put(endpoint, new LongAdder());
+    }
+  }
+
+  public static void main(final String[] args) throws Exception {
+    final Settings settings = Settings.fromSystemProperties();
+    final Path storage = Files.createTempDirectory("bibliothek-load-test");
+    try (final MongoStandIn mongo = MongoStandIn.start(settings)) {
+      boolean generated = false;
+      for (final Transfer transfer : settings.transfers()) {
+        try (final ConfigurableApplicationContext context = start(args, mongo, storage, transfer)) {
+          if (!generated) {
+            final MongoTemplate template = context.getBean(MongoTemplate.class);
+            template.getDb().drop();
+            final long generating = System.nanoTime();
+            new CatalogGenerator(settings, template, storage).generate();
+            System.out.printf("Generated %d projects x %d versions x %d builds in %s%n", settings.projects(), settings.versions(), settings.builds(), Duration.ofNanos(System.nanoTime() - generating));
+            generated = true;
+          }
+
+          System.out.printf("%nDownloads written with %s%n", transfer.name().toLowerCase(Locale.ROOT));
+          final int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+          new LoadTest(settings, URI.create("http://localhost:" + port)).run(System.out);
+        }
+      }
+    } finally {
+      deleteRecursively(storage);
+    }
+  }
+
+  private static ConfigurableApplicationContext start(final String[] args, final MongoStandIn mongo, final Path storage, final Transfer transfer) {
+    return new SpringApplicationBuilder(BibliothekApplication.class, Connector.class)
+      .properties(Map.of(
+        "app.async-downloads", transfer.async(),
+        "app.cache.change-streams", mongo.changeStreams(),
+        "app.storagePath", storage.toString(),
+        // the catalog is generated after startup, and the load test has its own warm-up
+        "app.warm-up.enabled", false,
+        "loadTest.sendfile", transfer.sendfile(),
+        "server.port", 0,
+        "spring.data.mongodb.database", DATABASE,
+        "spring.data.mongodb.uri", mongo.uri()
+      ))
+      .run(args);
+  }
+
+  private void run(final PrintStream out) throws InterruptedException {
+    try (final ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < this.settings.concurrency(); i++) {
+        final Random random = new Random(this.settings.seed() + i);
+        clients.submit(() -> this.client(random));
+      }
+      Thread.sleep(this.settings.warmUp());
+      this.latencies.values().forEach(Recorder::reset);
+      this.errors.values().forEach(LongAdder::reset);
+      final long start = System.nanoTime();
+      Thread.sleep(this.settings.duration());
+      final Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+      final Map<RequestMix.Endpoint, Histogram> histograms = new EnumMap<>(RequestMix.Endpoint.class);
+      this.latencies.forEach((endpoint, recorder) -> histograms.put(endpoint, recorder.getIntervalHistogram()));
+      this.running = false;
+      this.report(out, histograms, elapsed);
+    }
+  }
+
+  private void client(final Random random) {
+    while (this.running) {
+      final RequestMix.Request request = this.mix.next(random);
+      final long start = System.nanoTime();
+      try {
+        final HttpResponse<Void> response = this.client.send(
+          HttpRequest.newBuilder(this.base.resolve(request.path())).GET().build(),
+          HttpResponse.BodyHandlers.discarding()
+        );
+        if (response.statusCode() != 200) {
+          this.errors.get(request.endpoint()).increment();
+        }
+      } catch (final IOException e) {
+        this.errors.get(request.endpoint()).increment();
+      } catch (final InterruptedException e) {
+        return;
+      }
+      this.latencies.get(request.endpoint()).recordValue((System.nanoTime() - start) / 1_000);
+    }
+  }
+
+  private void report(final PrintStream out, final Map<RequestMix.Endpoint, Histogram> histograms, final Duration elapsed) {
+    final double seconds = elapsed.toNanos() / 1e9;
+    out.printf("%n%-22s %10s %10s %8s", "endpoint", "requests", "req/s", "errors");
+    for (final double percentile : PERCENTILES) {
+      out.printf(" %9s", "p" + percentile);
+    }
+    out.printf(" %9s%n", "max");
+    final Histogram total = new Histogram(3);
+    long totalErrors = 0;
+    for (final Map.Entry<RequestMix.Endpoint, Histogram> entry : histograms.entrySet()) {
+      final long errors = this.errors.get(entry.getKey()).sum();
+      this.row(out, entry.getKey().name().toLowerCase(), entry.getValue(), errors, seconds);
+      total.add(entry.getValue());
+      totalErrors += errors;
+    }
+    this.row(out, "total", total, totalErrors, seconds);
+    out.println("(latencies in milliseconds)");
+  }
+
+  private void row(final PrintStream out, final String name, final Histogram histogram, final long errors, final double seconds) {
+    out.printf("%-22s %10d %10.1f %8d", name, histogram.getTotalCount(), histogram.getTotalCount() / seconds, errors);
+    for (final double percentile : PERCENTILES) {
+      out.printf(" %9.2f", histogram.getValueAtPercentile(percentile) / 1_000d);
+    }
+    out.printf(" %9.2f%n", histogram.getMaxValue() / 1_000d);
+  }
+
+  private static void deleteRecursively(final Path path) throws IOException {
+    try (final Stream<Path> paths = Files.walk(path)) {
+      for (final Path child : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(child);
+      }
+    }
+  }
+
+  // Tomcat uses sendfile whenever it can, which would bypass the other ways of writing downloads
+  @Configuration(proxyBeanMethods = false)
+  static class Connector {
+    @Bean
+    WebServerFactoryCustomizer<TomcatServletWebServerFactory> sendfile(@Value("${loadTest.sendfile:true}") final boolean sendfile) {
+      return factory -> factory.addConnectorCustomizers(connector -> connector.setProperty("useSendfile", String.valueOf(sendfile)));
+    }
+  }
+}
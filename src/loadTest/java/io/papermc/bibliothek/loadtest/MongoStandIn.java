@@ -0,0 +1,70 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.loadtest;
+
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The MongoDB a load test runs against - either an embedded standalone server, or an existing one.
+ */
+final class MongoStandIn implements AutoCloseable {
+  private final String uri;
+  private final @Nullable TransitionWalker.ReachedState<RunningMongodProcess> embedded;
+
+  private MongoStandIn(final String uri, final TransitionWalker.@Nullable ReachedState<RunningMongodProcess> embedded) {
+    this.uri = uri;
+    this.embedded = embedded;
+  }
+
+  static MongoStandIn start(final Settings settings) {
+    final String mongo = settings.mongo();
+    if (mongo != null) {
+      return new MongoStandIn(mongo, null);
+    }
+    final TransitionWalker.ReachedState<RunningMongodProcess> embedded = Mongod.instance().start(Version.Main.V7_0);
+    final ServerAddress address = embedded.current().getServerAddress();
+    return new MongoStandIn("mongodb://" + address.getHost() + ":" + address.getPort(), embedded);
+  }
+
+  String uri() {
+    return this.uri;
+  }
+
+  // the embedded server is not a replica set
+  boolean changeStreams() {
+    return this.embedded == null;
+  }
+
+  @Override
+  public void close() {
+    if (this.embedded != null) {
+      this.embedded.close();
+    }
+  }
+}
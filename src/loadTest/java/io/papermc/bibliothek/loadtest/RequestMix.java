@@ -0,0 +1,104 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.loadtest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A launcher-like mix of requests.
+ *
+ * <p>Most requests are update checks against the newest versions of the first few projects,
+ * followed by the occasional download of one of their newest builds.</p>
+ */
+final class RequestMix {
+  private final Settings settings;
+  private final List<Endpoint> endpoints;
+  private final int totalWeight;
+
+  RequestMix(final Settings settings) {
+    this.settings = settings;
+    // without files on disk every download would be a 404
+    this.endpoints = Arrays.stream(Endpoint.values())
+      .filter(endpoint -> endpoint != Endpoint.DOWNLOAD || settings.files() > 0)
+      .toList();
+    this.totalWeight = this.endpoints.stream().mapToInt(endpoint -> endpoint.weight).sum();
+  }
+
+  Request next(final Random random) {
+    int remaining = random.nextInt(this.totalWeight);
+    Endpoint endpoint = null;
+    for (final Endpoint candidate : this.endpoints) {
+      remaining -= candidate.weight;
+      if (remaining < 0) {
+        endpoint = candidate;
+        break;
+      }
+    }
+    final int project = skewed(random, this.settings.projects());
+    final int version = this.settings.versions() - 1 - skewed(random, this.settings.versions());
+    final String prefix = "/v2/projects/" + Settings.projectName(project);
+    final String versionPrefix = prefix + "/versions/" + Settings.versionName(version);
+    final String path = switch (endpoint) {
+      case PROJECTS -> "/v2/projects";
+      case PROJECT -> prefix;
+      case VERSION -> versionPrefix;
+      case VERSION_BUILDS -> versionPrefix + "/builds";
+      case VERSION_LATEST_BUILD -> versionPrefix + "/builds/latest";
+      case VERSION_BUILD -> versionPrefix + "/builds/" + (this.settings.builds() - skewed(random, Math.min(this.settings.builds(), 20)));
+      case FAMILY_BUILDS -> prefix + "/version_group/" + Settings.familyName(version) + "/builds";
+      case DOWNLOAD -> {
+        final int build = this.settings.builds() - random.nextInt(Math.min(this.settings.builds(), this.settings.files()));
+        yield versionPrefix + "/builds/" + build + "/downloads/" + Settings.downloadName(project, version, build);
+      }
+    };
+    return new Request(endpoint, path);
+  }
+
+  // small values are much more likely than large ones, like the popularity of projects and versions
+  private static int skewed(final Random random, final int bound) {
+    return Math.min(bound - 1, (int) (bound * Math.pow(random.nextDouble(), 4)));
+  }
+
+  enum Endpoint {
+    PROJECTS(5),
+    PROJECT(10),
+    VERSION(5),
+    VERSION_BUILDS(20),
+    VERSION_LATEST_BUILD(30),
+    VERSION_BUILD(10),
+    FAMILY_BUILDS(5),
+    DOWNLOAD(15);
+
+    private final int weight;
+
+    Endpoint(final int weight) {
+      this.weight = weight;
+    }
+  }
+
+  record Request(Endpoint endpoint, String path) {
+  }
+}
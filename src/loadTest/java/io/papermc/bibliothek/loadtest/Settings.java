@@ -0,0 +1,103 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.loadtest;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Settings for a load test run, read from {@code loadTest.*} system properties.
+ *
+ * @param projects the number of projects to generate
+ * @param versions the number of versions per project
+ * @param builds the number of builds per version
+ * @param files the number of newest builds per version that get a file on disk
+ * @param fileSize the size of each file, in bytes
+ * @param concurrency the number of concurrent clients
+ * @param warmUp how long to send requests before recording
+ * @param duration how long to record requests
+ * @param seed the seed for generating the catalog and the requests
+ * @param mongo a MongoDB connection string to use instead of an embedded MongoDB
+ * @param transfers the ways of writing downloads to run the test with, one after another
+ */
+record Settings(
+  int projects,
+  int versions,
+  int builds,
+  int files,
+  int fileSize,
+  int concurrency,
+  Duration warmUp,
+  Duration duration,
+  long seed,
+  @Nullable String mongo,
+  List<Transfer> transfers
+) {
+  // one version family for every ten versions
+  static final int VERSIONS_PER_FAMILY = 10;
+
+  static Settings fromSystemProperties() {
+    return new Settings(
+      Integer.getInteger("loadTest.projects", 2),
+      Integer.getInteger("loadTest.versions", 50),
+      Integer.getInteger("loadTest.builds", 500),
+      Integer.getInteger("loadTest.files", 3),
+      Integer.getInteger("loadTest.fileSize", 256 * 1024),
+      Integer.getInteger("loadTest.concurrency", 64),
+      Duration.parse(System.getProperty("loadTest.warmUp", "PT30S")),
+      Duration.parse(System.getProperty("loadTest.duration", "PT2M")),
+      Long.getLong("loadTest.seed", 0),
+      System.getProperty("loadTest.mongo"),
+      Arrays.stream(System.getProperty("loadTest.transfers", "sendfile").split(","))
+        .map(transfer -> Transfer.valueOf(transfer.trim().toUpperCase(Locale.ROOT)))
+        .toList()
+    );
+  }
+
+  static String projectName(final int project) {
+    // project names may only contain letters
+    final StringBuilder name = new StringBuilder("project");
+    int remaining = project;
+    do {
+      name.append((char) ('a' + remaining % 26));
+      remaining /= 26;
+    } while (remaining > 0);
+    return name.toString();
+  }
+
+  static String familyName(final int version) {
+    return "1." + version / VERSIONS_PER_FAMILY;
+  }
+
+  static String versionName(final int version) {
+    return familyName(version) + "." + version % VERSIONS_PER_FAMILY;
+  }
+
+  static String downloadName(final int project, final int version, final int build) {
+    return projectName(project) + "-" + versionName(version) + "-" + build + ".jar";
+  }
+}
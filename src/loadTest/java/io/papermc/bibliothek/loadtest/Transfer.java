@@ -0,0 +1,52 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.loadtest;
+
+/**
+ * How downloads are written to the response, so that runs can compare them under the same request mix.
+ */
+enum Transfer {
+  // the default - Tomcat writes the file to the socket itself
+  SENDFILE(true, true),
+  // non-blocking servlet I/O, as without a sendfile capable connector
+  ASYNC(false, true),
+  // the request thread copies the whole file, as before asynchronous transfers
+  BLOCKING(false, false);
+
+  private final boolean sendfile;
+  private final boolean async;
+
+  Transfer(final boolean sendfile, final boolean async) {
+    this.sendfile = sendfile;
+    this.async = async;
+  }
+
+  boolean sendfile() {
+    return this.sendfile;
+  }
+
+  boolean async() {
+    return this.async;
+  }
+}
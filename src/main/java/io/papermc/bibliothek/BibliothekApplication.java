@@ -24,13 +24,23 @@
 package io.papermc.bibliothek;
 
 import io.papermc.bibliothek.configuration.AppConfiguration;
+import io.papermc.bibliothek.configuration.CacheConfiguration;
+import io.papermc.bibliothek.configuration.IngestConfiguration;
+import io.papermc.bibliothek.configuration.PatchConfiguration;
+import io.papermc.bibliothek.configuration.ScanConfiguration;
+import io.papermc.bibliothek.configuration.WarmUpConfiguration;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.servlet.ServletComponentScan;
 
 @EnableConfigurationProperties({
-  AppConfiguration.class
+  AppConfiguration.class,
+  CacheConfiguration.class,
+  IngestConfiguration.class,
+  PatchConfiguration.class,
+  ScanConfiguration.class,
+  WarmUpConfiguration.class
 })
 @SpringBootApplication
 @ServletComponentScan
@@ -0,0 +1,324 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.papermc.bibliothek.catalog.Catalog;
+import io.papermc.bibliothek.configuration.CacheConfiguration;
+import io.papermc.bibliothek.database.change.ChangeStreamWatcher;
+import io.papermc.bibliothek.database.change.CollectionChanged;
+import io.papermc.bibliothek.database.model.Project;
+import io.papermc.bibliothek.database.model.Version;
+import io.papermc.bibliothek.database.model.VersionFamily;
+import io.papermc.bibliothek.util.ContentEncoding;
+import io.papermc.bibliothek.util.Validators;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.function.ThrowingSupplier;
+
+/**
+ * A cache of fully serialized responses, for endpoints whose responses are expensive to
+ * build but only change when a build is inserted or promoted.
+ *
+ * <p>Every response is also stored in each of the configured {@link ContentEncoding}s, so that
+ * each response is compressed once when it is loaded rather than on every request.</p>
+ */
+@Component
+public class ResponseCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCache.class);
+  private static final String BUILDS = "builds";
+  private final CacheConfiguration configuration;
+  private final ChangeStreamWatcher watcher;
+  private final Catalog catalog;
+  private final List<ContentEncoding> encodings;
+  private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+  private final Map<Key, CompletableFuture<@Nullable Entry>> loading = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicLong bytes = new AtomicLong();
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter evictions;
+
+  @Autowired
+  private ResponseCache(
+    final CacheConfiguration configuration,
+    final ChangeStreamWatcher watcher,
+    final Catalog catalog,
+    final MeterRegistry metrics
+  ) {
+    this.configuration = configuration;
+    this.watcher = watcher;
+    this.catalog = catalog;
+    this.encodings = configuration.getEncodings().stream()
+      .filter(encoding -> {
+        if (!encoding.available()) {
+          LOGGER.info("{} is not available on this platform, responses will not be stored in it", encoding);
+          return false;
+        }
+        return true;
+      })
+      .sorted()
+      .toList();
+    this.hits = Counter.builder("cache.gets").tag("cache", "responses").tag("result", "hit").register(metrics);
+    this.misses = Counter.builder("cache.gets").tag("cache", "responses").tag("result", "miss").register(metrics);
+    this.evictions = Counter.builder("cache.evictions").tag("cache", "responses").register(metrics);
+    Gauge.builder("cache.size", this.entries, Map::size).tag("cache", "responses").register(metrics);
+    Gauge.builder("bibliothek.cache.bytes", this.bytes, AtomicLong::get).tag("cache", "responses").baseUnit("bytes").register(metrics);
+  }
+
+  /**
+   * Checks if responses are cached at all.
+   *
+   * @return {@code true} if responses are cached
+   */
+  public boolean enabled() {
+    return this.configuration.getResponseBytes().toBytes() > 0;
+  }
+
+  /**
+   * Picks the encoding of the cached responses to send to a client.
+   *
+   * @param acceptEncoding the {@code Accept-Encoding} header of the request
+   * @return the encoding, or {@code null} for the unencoded response
+   */
+  public @Nullable ContentEncoding negotiate(final @Nullable String acceptEncoding) {
+    return ContentEncoding.negotiate(acceptEncoding, this.encodings);
+  }
+
+  /**
+   * Gets a cached response, loading it if necessary.
+   *
+   * <p>When {@code notModified} accepts the validators of the response, {@code null} is returned
+   * instead - on a miss this happens before the body is loaded.</p>
+   *
+   * <p>Concurrent misses for the same key share a single load.</p>
+   *
+   * @param key the key
+   * @param notModified tests if the client already has the current response
+   * @param validators computes the validators of the current response
+   * @param body computes the body of the current response
+   * @return the response, or {@code null} if it has not been modified
+   */
+  public @Nullable CachedResponse get(
+    final Key key,
+    final Predicate<Validators> notModified,
+    final ThrowingSupplier<Validators> validators,
+    final ThrowingSupplier<byte[]> body
+  ) {
+    while (true) {
+      final Entry cached = this.entries.get(key);
+      if (cached != null && !this.expired(cached)) {
+        cached.accessed = System.nanoTime();
+        this.hits.increment();
+        return notModified.test(cached.response.validators()) ? null : cached.response;
+      }
+      final CompletableFuture<@Nullable Entry> load = new CompletableFuture<>();
+      final CompletableFuture<@Nullable Entry> pending = this.loading.putIfAbsent(key, load);
+      if (pending != null) {
+        // somebody else is already loading this response - share it rather than load it again
+        final @Nullable Entry loaded = await(pending);
+        if (loaded != null) {
+          this.hits.increment();
+          return notModified.test(loaded.response.validators()) ? null : loaded.response;
+        }
+        // the load stopped short at a conditional request, try again
+        continue;
+      }
+      try {
+        this.misses.increment();
+        final @Nullable Entry entry = this.load(key, notModified, validators, body);
+        load.complete(entry);
+        return entry != null ? entry.response : null;
+      } catch (final RuntimeException | Error e) {
+        load.completeExceptionally(e);
+        throw e;
+      } finally {
+        this.loading.remove(key, load);
+      }
+    }
+  }
+
+  private @Nullable Entry load(
+    final Key key,
+    final Predicate<Validators> notModified,
+    final ThrowingSupplier<Validators> validators,
+    final ThrowingSupplier<byte[]> body
+  ) {
+    final long generation = this.generation.get();
+    final Validators current = validators.get();
+    if (notModified.test(current)) {
+      return null;
+    }
+    final byte[] identity = body.get();
+    final Map<ContentEncoding, byte[]> encoded = new EnumMap<>(ContentEncoding.class);
+    for (final ContentEncoding encoding : this.encodings) {
+      encoded.put(encoding, encoding.encode(identity));
+    }
+    final Entry entry = new Entry(new CachedResponse(identity, encoded, current));
+    final Entry previous = this.entries.put(key, entry);
+    this.bytes.addAndGet(entry.size() - (previous != null ? previous.size() : 0));
+    if (this.generation.get() != generation) {
+      // something changed while we were loading - the response may already be stale
+      this.remove(key, entry);
+    }
+    this.trim();
+    return entry;
+  }
+
+  private static @Nullable Entry await(final CompletableFuture<@Nullable Entry> load) {
+    try {
+      return load.join();
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof final RuntimeException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof final Error cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  @EventListener
+  void collectionChanged(final CollectionChanged event) {
+    final Document document = event.document();
+    final ObjectId project = document != null ? document.getObjectId("project") : null;
+    final ObjectId version = document != null ? document.getObjectId("version") : null;
+    if (BUILDS.equals(event.collection()) && project != null && version != null) {
+      this.generation.incrementAndGet();
+      this.remove(Key.version(project, version));
+      this.catalog.version(version).ifPresent(it -> this.remove(Key.family(project, it.group())));
+    } else if (event.affects(BUILDS) || event.affects(Catalog.COLLECTIONS)) {
+      this.generation.incrementAndGet();
+      this.entries.keySet().forEach(this::remove);
+    }
+  }
+
+  private boolean expired(final Entry entry) {
+    return !this.watcher.isWatching() && entry.created.plus(this.configuration.getTtl()).isBefore(Instant.now());
+  }
+
+  private void trim() {
+    final long budget = this.configuration.getResponseBytes().toBytes();
+    if (this.bytes.get() <= budget) {
+      return;
+    }
+    this.entries.entrySet().stream()
+      .sorted(Comparator.comparingLong(entry -> entry.getValue().accessed))
+      .takeWhile(entry -> this.bytes.get() > budget)
+      .forEach(entry -> {
+        if (this.remove(entry.getKey(), entry.getValue())) {
+          this.evictions.increment();
+        }
+      });
+  }
+
+  private void remove(final Key key) {
+    final Entry entry = this.entries.remove(key);
+    if (entry != null) {
+      this.bytes.addAndGet(-entry.size());
+    }
+  }
+
+  private boolean remove(final Key key, final Entry entry) {
+    if (this.entries.remove(key, entry)) {
+      this.bytes.addAndGet(-entry.size());
+      return true;
+    }
+    return false;
+  }
+
+  public record Key(
+    Kind kind,
+    ObjectId project,
+    ObjectId scope
+  ) {
+    public static Key version(final Project project, final Version version) {
+      return version(project._id(), version._id());
+    }
+
+    public static Key family(final Project project, final VersionFamily family) {
+      return family(project._id(), family._id());
+    }
+
+    static Key version(final ObjectId project, final ObjectId version) {
+      return new Key(Kind.VERSION_BUILDS, project, version);
+    }
+
+    static Key family(final ObjectId project, final ObjectId family) {
+      return new Key(Kind.FAMILY_BUILDS, project, family);
+    }
+
+    public enum Kind {
+      VERSION_BUILDS,
+      FAMILY_BUILDS;
+    }
+  }
+
+  public record CachedResponse(
+    byte[] body,
+    Map<ContentEncoding, byte[]> encoded,
+    Validators validators
+  ) {
+    public byte[] body(final @Nullable ContentEncoding encoding) {
+      return encoding != null ? this.encoded.getOrDefault(encoding, this.body) : this.body;
+    }
+  }
+
+  private static final class Entry {
+    final CachedResponse response;
+    final Instant created = Instant.now();
+    volatile long accessed = System.nanoTime();
+
+    Entry(final CachedResponse response) {
+      this.response = response;
+    }
+
+    long size() {
+      long size = this.response.body().length;
+      for (final byte[] encoded : this.response.encoded().values()) {
+        size += encoded.length;
+      }
+      return size;
+    }
+  }
+}
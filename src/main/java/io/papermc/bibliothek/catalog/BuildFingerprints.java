@@ -0,0 +1,128 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.catalog;
+
+import io.papermc.bibliothek.configuration.CacheConfiguration;
+import io.papermc.bibliothek.database.change.ChangeStreamWatcher;
+import io.papermc.bibliothek.database.change.CollectionChanged;
+import io.papermc.bibliothek.database.model.BuildFingerprint;
+import io.papermc.bibliothek.database.repository.BuildCollection;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * The fingerprint of the builds of each version, which response validators are computed from.
+ *
+ * <p>Computing a fingerprint reads every build of a version, so it is done once per version and
+ * kept until a change to its builds drops it. The fingerprint of several versions is combined
+ * from theirs, so conditional requests never reach the database.</p>
+ */
+@Component
+public class BuildFingerprints {
+  private static final String BUILDS = "builds";
+  private final CacheConfiguration configuration;
+  private final ChangeStreamWatcher watcher;
+  private final BuildCollection builds;
+  private final Map<ObjectId, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+
+  @Autowired
+  private BuildFingerprints(
+    final CacheConfiguration configuration,
+    final ChangeStreamWatcher watcher,
+    final BuildCollection builds
+  ) {
+    this.configuration = configuration;
+    this.watcher = watcher;
+    this.builds = builds;
+  }
+
+  /**
+   * Gets the fingerprint of the builds of some versions.
+   *
+   * @param project the project
+   * @param versions the versions
+   * @return the fingerprint
+   */
+  public BuildFingerprint of(final ObjectId project, final Collection<ObjectId> versions) {
+    BuildFingerprint fingerprint = BuildFingerprint.EMPTY;
+    for (final ObjectId version : versions) {
+      fingerprint = fingerprint.plus(this.of(project, version));
+    }
+    return fingerprint;
+  }
+
+  /**
+   * Gets the fingerprint of the builds of a version.
+   *
+   * @param project the project
+   * @param version the version
+   * @return the fingerprint
+   */
+  public BuildFingerprint of(final ObjectId project, final ObjectId version) {
+    final Entry entry = this.entries.get(version);
+    return entry != null && !this.expired(entry) ? entry.fingerprint() : this.refresh(project, version);
+  }
+
+  @EventListener
+  void collectionChanged(final CollectionChanged event) {
+    final Document document = event.document();
+    final ObjectId version = document != null ? document.getObjectId("version") : null;
+    if (BUILDS.equals(event.collection()) && version != null) {
+      this.generation.incrementAndGet();
+      this.entries.remove(version);
+    } else if (event.affects(BUILDS)) {
+      this.generation.incrementAndGet();
+      this.entries.clear();
+    }
+  }
+
+  private BuildFingerprint refresh(final ObjectId project, final ObjectId version) {
+    final long generation = this.generation.get();
+    final BuildFingerprint fingerprint = this.builds.fingerprint(project, List.of(version));
+    final Entry entry = new Entry(fingerprint, Instant.now());
+    this.entries.put(version, entry);
+    if (this.generation.get() != generation) {
+      // something changed while we were computing - the fingerprint may already be stale
+      this.entries.remove(version, entry);
+    }
+    return fingerprint;
+  }
+
+  private boolean expired(final Entry entry) {
+    return !this.watcher.isWatching() && entry.created().plus(this.configuration.getTtl()).isBefore(Instant.now());
+  }
+
+  private record Entry(BuildFingerprint fingerprint, Instant created) {
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.catalog;
+
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.BuildLookup;
+import io.papermc.bibliothek.database.model.Project;
+import io.papermc.bibliothek.database.model.Version;
+import io.papermc.bibliothek.database.repository.BuildCollection;
+import io.papermc.bibliothek.exception.BuildNotFound;
+import io.papermc.bibliothek.exception.ProjectNotFound;
+import io.papermc.bibliothek.exception.VersionNotFound;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves a build from the names in a request, using a single round trip to the database.
+ */
+@Component
+public class BuildResolver {
+  private final Catalog catalog;
+  private final BuildCollection builds;
+
+  @Autowired
+  private BuildResolver(
+    final Catalog catalog,
+    final BuildCollection builds
+  ) {
+    this.catalog = catalog;
+    this.builds = builds;
+  }
+
+  public ResolvedBuild resolve(final String projectName, final String versionName, final int buildNumber) {
+    final Optional<Project> project = this.catalog.project(projectName);
+    final Optional<Version> version = project.flatMap(it -> this.catalog.version(it, versionName));
+    if (project.isPresent() && version.isPresent()) {
+      final Build build = this.builds.findByProjectAndVersionAndNumber(project.get()._id(), version.get()._id(), buildNumber).orElseThrow(BuildNotFound::new);
+      return new ResolvedBuild(project.get(), version.get(), build);
+    }
+    // the catalog might not have caught up yet - let the database resolve everything at once
+    final BuildLookup lookup = this.builds.findByNames(projectName, versionName, buildNumber).orElseThrow(ProjectNotFound::new);
+    final Version foundVersion = lookup.version();
+    if (foundVersion == null) {
+      throw new VersionNotFound();
+    }
+    final Build foundBuild = lookup.build();
+    if (foundBuild == null) {
+      throw new BuildNotFound();
+    }
+    return new ResolvedBuild(lookup.project(), foundVersion, foundBuild);
+  }
+
+  /**
+   * Resolves many builds at once.
+   *
+   * <p>Projects and versions are resolved from the catalog, and builds with a single query - an
+   * {@code $or} with one indexed {@code $in} clause per distinct version - so a batch costs one
+   * round trip, however many builds and versions it asks for.</p>
+   *
+   * @param coordinates the builds to resolve
+   * @return for each coordinate, in order, the resolved build, or {@code null} if it does not exist
+   */
+  public List<@Nullable ResolvedBuild> resolveAll(final List<Coordinates> coordinates) {
+    final List<@Nullable Project> projects = new ArrayList<>(coordinates.size());
+    final List<@Nullable Version> versions = new ArrayList<>(coordinates.size());
+    final Map<Version, Set<Integer>> wanted = new LinkedHashMap<>();
+    for (final Coordinates coordinate : coordinates) {
+      final Optional<Project> project = this.catalog.project(coordinate.project());
+      final Optional<Version> version = project.flatMap(it -> this.catalog.version(it, coordinate.version()));
+      projects.add(project.orElse(null));
+      versions.add(version.orElse(null));
+      version.ifPresent(it -> wanted.computeIfAbsent(it, key -> new HashSet<>()).add(coordinate.build()));
+    }
+
+    final Map<ObjectId, Map<Integer, Build>> found = new HashMap<>();
+    for (final Build build : this.builds.findAllByNumbers(wanted)) {
+      found.computeIfAbsent(build.version(), key -> new HashMap<>()).put(build.number(), build);
+    }
+
+    final List<@Nullable ResolvedBuild> resolved = new ArrayList<>(coordinates.size());
+    for (int i = 0; i < coordinates.size(); i++) {
+      final @Nullable Project project = projects.get(i);
+      final @Nullable Version version = versions.get(i);
+      final @Nullable Build build = version != null ? found.getOrDefault(version._id(), Map.of()).get(coordinates.get(i).build()) : null;
+      resolved.add(project != null && version != null && build != null ? new ResolvedBuild(project, version, build) : null);
+    }
+    return resolved;
+  }
+
+  /**
+   * The names of a build.
+   *
+   * @param project the project name
+   * @param version the version name
+   * @param build the build number
+   */
+  public record Coordinates(
+    String project,
+    String version,
+    int build
+  ) {
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.catalog;
+
+import io.papermc.bibliothek.configuration.CacheConfiguration;
+import io.papermc.bibliothek.database.change.ChangeStreamWatcher;
+import io.papermc.bibliothek.database.change.CollectionChanged;
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.Project;
+import io.papermc.bibliothek.database.model.Version;
+import io.papermc.bibliothek.database.repository.BuildCollection;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.stereotype.Component;
+
+/**
+ * The newest builds of each version, kept up to date as builds are inserted or promoted.
+ *
+ * <p>A summary is computed with one query per channel and promotion state, each stopping at the
+ * newest matching build. Changes that carry the build, as change stream events do, are applied
+ * to the summary directly - anything else only drops the summary of its version, and the next
+ * request computes it again.</p>
+ */
+@Component
+public class BuildSummaries {
+  private static final String BUILDS = "builds";
+  private final CacheConfiguration configuration;
+  private final ChangeStreamWatcher watcher;
+  private final BuildCollection builds;
+  private final MongoConverter converter;
+  private final Map<ObjectId, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+
+  @Autowired
+  private BuildSummaries(
+    final CacheConfiguration configuration,
+    final ChangeStreamWatcher watcher,
+    final BuildCollection builds,
+    final MongoConverter converter
+  ) {
+    this.configuration = configuration;
+    this.watcher = watcher;
+    this.builds = builds;
+    this.converter = converter;
+  }
+
+  /**
+   * Gets the newest build of a version.
+   *
+   * @param project the project
+   * @param version the version
+   * @param channel the channel, or {@code null} for any channel
+   * @param promoted if only promoted builds should be considered
+   * @return the newest build
+   */
+  public Optional<Build> latest(final Project project, final Version version, final @Nullable Build.Channel channel, final boolean promoted) {
+    final Entry entry = this.entries.get(version._id());
+    final BuildSummary summary = entry != null && !this.expired(entry) ? entry.summary() : this.refresh(project._id(), version._id());
+    return summary.latest(channel, promoted);
+  }
+
+  @EventListener
+  void collectionChanged(final CollectionChanged event) {
+    final Document document = event.document();
+    final ObjectId version = document != null ? document.getObjectId("version") : null;
+    if (BUILDS.equals(event.collection()) && version != null) {
+      this.generation.incrementAndGet();
+      if (document.containsKey("number")) {
+        final Build build = this.converter.read(Build.class, document);
+        this.entries.computeIfPresent(version, (key, entry) -> {
+          final @Nullable BuildSummary summary = entry.summary().with(build);
+          return summary != null ? new Entry(summary, entry.created()) : null;
+        });
+      } else {
+        this.entries.remove(version);
+      }
+    } else if (event.affects(BUILDS)) {
+      this.generation.incrementAndGet();
+      this.entries.clear();
+    }
+  }
+
+  private BuildSummary refresh(final ObjectId project, final ObjectId version) {
+    final long generation = this.generation.get();
+    final Map<BuildSummary.Key, Build> byChannel = new HashMap<>();
+    for (final BuildSummary.Key key : BuildSummary.CHANNEL_KEYS) {
+      this.builds.findLatest(project, version, key.channel(), key.promoted()).ifPresent(build -> byChannel.put(key, build));
+    }
+    final BuildSummary summary = BuildSummary.of(project, version, byChannel);
+    final Entry entry = new Entry(summary, Instant.now());
+    this.entries.put(version, entry);
+    if (this.generation.get() != generation) {
+      // something changed while we were computing - the summary may already be stale
+      this.entries.remove(version, entry);
+    }
+    return summary;
+  }
+
+  private boolean expired(final Entry entry) {
+    return !this.watcher.isWatching() && entry.created().plus(this.configuration.getTtl()).isBefore(Instant.now());
+  }
+
+  private record Entry(BuildSummary summary, Instant created) {
+  }
+}
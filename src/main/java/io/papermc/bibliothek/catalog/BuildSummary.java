@@ -0,0 +1,130 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.catalog;
+
+import io.papermc.bibliothek.database.model.Build;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The newest builds of a version, by channel and promotion state.
+ */
+record BuildSummary(
+  ObjectId project,
+  ObjectId version,
+  Map<Key, Build> latest
+) {
+  static final List<Key> CHANNEL_KEYS = List.of(
+    new Key(Build.Channel.DEFAULT, false),
+    new Key(Build.Channel.DEFAULT, true),
+    new Key(Build.Channel.EXPERIMENTAL, false),
+    new Key(Build.Channel.EXPERIMENTAL, true)
+  );
+  private static final List<Key> KEYS = List.of(
+    new Key(null, false),
+    new Key(null, true),
+    CHANNEL_KEYS.get(0),
+    CHANNEL_KEYS.get(1),
+    CHANNEL_KEYS.get(2),
+    CHANNEL_KEYS.get(3)
+  );
+
+  /**
+   * Summarizes the builds of a version.
+   *
+   * @param project the project
+   * @param version the version
+   * @param byChannel the newest build for each of {@link #CHANNEL_KEYS}, if there is one
+   * @return the summary
+   */
+  static BuildSummary of(final ObjectId project, final ObjectId version, final Map<Key, Build> byChannel) {
+    final Map<Key, Build> latest = new HashMap<>(byChannel);
+    for (final boolean promoted : new boolean[]{false, true}) {
+      // the newest build of any channel is the newest of the newest builds of each channel
+      CHANNEL_KEYS.stream()
+        .filter(key -> key.promoted() == promoted)
+        .map(byChannel::get)
+        .filter(Objects::nonNull)
+        .max(Comparator.comparingInt(Build::number))
+        .ifPresent(build -> latest.put(new Key(null, promoted), build));
+    }
+    return new BuildSummary(project, version, latest);
+  }
+
+  /**
+   * Applies an inserted or updated build, without looking at the other builds of the version.
+   *
+   * @param build the build
+   * @return the updated summary, or {@code null} if the build no longer qualifies for a key it
+   *     was the newest build of - only the other builds can tell what replaces it
+   */
+  @Nullable BuildSummary with(final Build build) {
+    final Map<Key, Build> latest = new HashMap<>(this.latest);
+    for (final Key key : KEYS) {
+      final @Nullable Build current = latest.get(key);
+      final boolean matches = key.matches(build);
+      if (current != null && current.number() == build.number()) {
+        if (!matches) {
+          return null;
+        }
+        latest.put(key, build);
+      } else if (matches && (current == null || current.number() < build.number())) {
+        latest.put(key, build);
+      }
+    }
+    return new BuildSummary(this.project, this.version, latest);
+  }
+
+  /**
+   * Gets the newest build.
+   *
+   * @param channel the channel, or {@code null} for any channel
+   * @param promoted if only promoted builds should be considered
+   * @return the newest build
+   */
+  Optional<Build> latest(final @Nullable Build.Channel channel, final boolean promoted) {
+    return Optional.ofNullable(this.latest.get(new Key(channel, promoted)));
+  }
+
+  /**
+   * Which builds a summary entry is the newest of.
+   *
+   * @param channel the channel, or {@code null} for any channel
+   * @param promoted if only promoted builds are considered
+   */
+  record Key(
+    @Nullable Build.Channel channel,
+    boolean promoted
+  ) {
+    boolean matches(final Build build) {
+      return (this.channel == null || build.channelOrDefault() == this.channel) && (!this.promoted || build.promotedOrDefault());
+    }
+  }
+}
@@ -0,0 +1,227 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.catalog;
+
+import io.papermc.bibliothek.configuration.CacheConfiguration;
+import io.papermc.bibliothek.database.change.ChangeStreamWatcher;
+import io.papermc.bibliothek.database.change.CollectionChanged;
+import io.papermc.bibliothek.database.model.Project;
+import io.papermc.bibliothek.database.model.Version;
+import io.papermc.bibliothek.database.model.VersionFamily;
+import io.papermc.bibliothek.database.repository.ProjectCollection;
+import io.papermc.bibliothek.database.repository.VersionCollection;
+import io.papermc.bibliothek.database.repository.VersionFamilyCollection;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+/**
+ * A resident copy of all projects, version families and versions.
+ *
+ * <p>The catalog is small and rarely changes, so we keep all of it in memory and replace it
+ * whenever the change stream tells us that one of its collections has changed.</p>
+ */
+@Component
+public class Catalog {
+  public static final Set<String> COLLECTIONS = Set.of("projects", "version_groups", "versions");
+  private static final Sort BY_ID = Sort.by("_id");
+  private final CacheConfiguration configuration;
+  private final ChangeStreamWatcher watcher;
+  private final ProjectCollection projects;
+  private final VersionFamilyCollection families;
+  private final VersionCollection versions;
+  private final Lock lock = new ReentrantLock();
+  private volatile @Nullable Snapshot snapshot;
+
+  @Autowired
+  private Catalog(
+    final CacheConfiguration configuration,
+    final ChangeStreamWatcher watcher,
+    final ProjectCollection projects,
+    final VersionFamilyCollection families,
+    final VersionCollection versions
+  ) {
+    this.configuration = configuration;
+    this.watcher = watcher;
+    this.projects = projects;
+    this.families = families;
+    this.versions = versions;
+  }
+
+  public List<Project> projects() {
+    return this.snapshot().projects();
+  }
+
+  public Optional<Project> project(final String name) {
+    return Optional.ofNullable(this.snapshot().projectsByName().get(name));
+  }
+
+  public Optional<Project> project(final ObjectId id) {
+    return this.projects().stream()
+      .filter(project -> project._id().equals(id))
+      .findFirst();
+  }
+
+  public List<VersionFamily> families(final Project project) {
+    return this.snapshot().familiesByProject().getOrDefault(project._id(), List.of());
+  }
+
+  public Optional<VersionFamily> family(final Project project, final String name) {
+    return this.families(project).stream()
+      .filter(family -> family.name().equals(name))
+      .findFirst();
+  }
+
+  public List<Version> versions(final Project project) {
+    return this.snapshot().versionsByProject().getOrDefault(project._id(), List.of());
+  }
+
+  public List<Version> versions(final Project project, final VersionFamily family) {
+    return this.snapshot().versionsByFamily().getOrDefault(family._id(), List.of()).stream()
+      .filter(version -> version.project().equals(project._id()))
+      .toList();
+  }
+
+  public Optional<Version> version(final Project project, final String name) {
+    return Optional.ofNullable(this.snapshot().versionsByName().getOrDefault(project._id(), Map.of()).get(name));
+  }
+
+  public Optional<Version> version(final ObjectId id) {
+    return Optional.ofNullable(this.snapshot().versionsById().get(id));
+  }
+
+  @EventListener
+  void collectionChanged(final CollectionChanged event) {
+    if (event.affects(COLLECTIONS)) {
+      this.lock.lock();
+      try {
+        this.snapshot = this.load();
+      } catch (final RuntimeException e) {
+        // we will not be told again - the next read has to try once more
+        final Snapshot snapshot = this.snapshot;
+        if (snapshot != null) {
+          this.snapshot = snapshot.stale();
+        }
+        throw e;
+      } finally {
+        this.lock.unlock();
+      }
+    }
+  }
+
+  private Snapshot snapshot() {
+    final Snapshot snapshot = this.snapshot;
+    if (snapshot == null) {
+      this.lock.lock();
+      try {
+        Snapshot loaded = this.snapshot;
+        if (loaded == null) {
+          loaded = this.load();
+          this.snapshot = loaded;
+        }
+        return loaded;
+      } finally {
+        this.lock.unlock();
+      }
+    }
+    if ((snapshot.expired() || !this.watcher.isWatching() && snapshot.expired(this.configuration.getTtl())) && this.lock.tryLock()) {
+      // only one request pays for the refresh, everybody else keeps using the old snapshot
+      try {
+        final Snapshot loaded = this.load();
+        this.snapshot = loaded;
+        return loaded;
+      } finally {
+        this.lock.unlock();
+      }
+    }
+    return snapshot;
+  }
+
+  private Snapshot load() {
+    // natural order is whatever the server returns - the entity tags hash these lists, so they
+    // must come out in the same order from every instance
+    final List<Project> projects = List.copyOf(this.projects.findAll(BY_ID));
+    final List<VersionFamily> families = this.families.findAll(BY_ID);
+    final List<Version> versions = this.versions.findAll(BY_ID);
+    return new Snapshot(
+      projects,
+      projects.stream().collect(Collectors.toUnmodifiableMap(Project::name, Function.identity(), Catalog::first)),
+      families.stream().collect(Collectors.groupingBy(VersionFamily::project, Collectors.toUnmodifiableList())),
+      versions.stream().collect(Collectors.groupingBy(Version::project, Collectors.toUnmodifiableList())),
+      versions.stream().filter(version -> version.group() != null).collect(Collectors.groupingBy(Version::group, Collectors.toUnmodifiableList())),
+      versions.stream().collect(Collectors.groupingBy(Version::project, Collectors.toUnmodifiableMap(Version::name, Function.identity(), Catalog::first))),
+      versions.stream().collect(Collectors.toUnmodifiableMap(Version::_id, Function.identity())),
+      Instant.now(),
+      false
+    );
+  }
+
+  // names are expected to be unique, but nothing in the database enforces it
+  private static <T> T first(final T a, final T b) {
+    return a;
+  }
+
+  private record Snapshot(
+    List<Project> projects,
+    Map<String, Project> projectsByName,
+    Map<ObjectId, List<VersionFamily>> familiesByProject,
+    Map<ObjectId, List<Version>> versionsByProject,
+    Map<ObjectId, List<Version>> versionsByFamily,
+    Map<ObjectId, Map<String, Version>> versionsByName,
+    Map<ObjectId, Version> versionsById,
+    Instant loaded,
+    boolean expired
+  ) {
+    boolean expired(final Duration ttl) {
+      return this.loaded.plus(ttl).isBefore(Instant.now());
+    }
+
+    Snapshot stale() {
+      return new Snapshot(
+        this.projects,
+        this.projectsByName,
+        this.familiesByProject,
+        this.versionsByProject,
+        this.versionsByFamily,
+        this.versionsByName,
+        this.versionsById,
+        this.loaded,
+        true
+      );
+    }
+  }
+}
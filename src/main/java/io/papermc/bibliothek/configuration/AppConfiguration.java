@@ -23,6 +23,7 @@
  */
 package io.papermc.bibliothek.configuration;
 
+import io.papermc.bibliothek.download.StorageLayout;
 import jakarta.validation.constraints.NotNull;
 import java.net.URL;
 import java.nio.file.Path;
@@ -36,6 +37,8 @@ public class AppConfiguration {
   private String apiTitle;
   private String apiVersion;
   private @NotNull Path storagePath;
+  private @NotNull StorageLayout storageLayout = StorageLayout.TREE;
+  private boolean asyncDownloads = true;
 
   public URL getApiBaseUrl() {
     return this.apiBaseUrl;
@@ -68,4 +71,20 @@ public class AppConfiguration {
   public void setStoragePath(final Path storagePath) {
     this.storagePath = storagePath;
   }
+
+  public StorageLayout getStorageLayout() {
+    return this.storageLayout;
+  }
+
+  public void setStorageLayout(final StorageLayout storageLayout) {
+    this.storageLayout = storageLayout;
+  }
+
+  public boolean isAsyncDownloads() {
+    return this.asyncDownloads;
+  }
+
+  public void setAsyncDownloads(final boolean asyncDownloads) {
+    this.asyncDownloads = asyncDownloads;
+  }
 }
@@ -0,0 +1,82 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.configuration;
+
+import io.papermc.bibliothek.util.ContentEncoding;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "app.cache")
+@Validated
+public class CacheConfiguration {
+  private boolean changeStreams = true;
+  private Duration ttl = Duration.ofMinutes(1);
+  private DataSize responseBytes = DataSize.ofMegabytes(64);
+  private Set<ContentEncoding> encodings = EnumSet.allOf(ContentEncoding.class);
+  private DataSize artifactBytes = DataSize.ofBytes(0);
+
+  public boolean isChangeStreams() {
+    return this.changeStreams;
+  }
+
+  public void setChangeStreams(final boolean changeStreams) {
+    this.changeStreams = changeStreams;
+  }
+
+  public Duration getTtl() {
+    return this.ttl;
+  }
+
+  public void setTtl(final Duration ttl) {
+    this.ttl = ttl;
+  }
+
+  public DataSize getResponseBytes() {
+    return this.responseBytes;
+  }
+
+  public void setResponseBytes(final DataSize responseBytes) {
+    this.responseBytes = responseBytes;
+  }
+
+  public Set<ContentEncoding> getEncodings() {
+    return this.encodings;
+  }
+
+  public void setEncodings(final Set<ContentEncoding> encodings) {
+    this.encodings = encodings;
+  }
+
+  public DataSize getArtifactBytes() {
+    return this.artifactBytes;
+  }
+
+  public void setArtifactBytes(final DataSize artifactBytes) {
+    this.artifactBytes = artifactBytes;
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.configuration;
+
+import io.papermc.bibliothek.database.change.CollectionChanged;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ApplicationEventMulticaster;
+import org.springframework.context.event.SimpleApplicationEventMulticaster;
+import org.springframework.context.support.AbstractApplicationContext;
+
+@Configuration
+class EventConfiguration {
+  @Bean(AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME)
+  static ApplicationEventMulticaster applicationEventMulticaster(final BeanFactory beanFactory) {
+    return new ChangeMulticaster(beanFactory);
+  }
+
+  /**
+   * Delivers every {@link CollectionChanged} to each of its listeners, even if one of them fails.
+   *
+   * <p>Each cache listens on its own - one failing to handle a change must not leave the others
+   * stale. Other events still stop at the first listener that throws.</p>
+   */
+  private static final class ChangeMulticaster extends SimpleApplicationEventMulticaster {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeMulticaster.class);
+
+    ChangeMulticaster(final BeanFactory beanFactory) {
+      super(beanFactory);
+    }
+
+    @Override
+    protected void invokeListener(final ApplicationListener<?> listener, final ApplicationEvent event) {
+      if (event instanceof final PayloadApplicationEvent<?> payload && payload.getPayload() instanceof final CollectionChanged change) {
+        try {
+          super.invokeListener(listener, event);
+        } catch (final RuntimeException e) {
+          LOGGER.warn("Could not handle change to {}", change.collection(), e);
+        }
+      } else {
+        super.invokeListener(listener, event);
+      }
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.configuration;
+
+import jakarta.validation.constraints.Positive;
+import java.nio.file.Path;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "app.ingest")
+@Validated
+public class IngestConfiguration {
+  private @Nullable String token;
+  private @Nullable Path sourcePath;
+  private @Positive int parallelism = 4;
+
+  public @Nullable String getToken() {
+    return this.token;
+  }
+
+  public void setToken(final @Nullable String token) {
+    this.token = token;
+  }
+
+  public @Nullable Path getSourcePath() {
+    return this.sourcePath;
+  }
+
+  public void setSourcePath(final @Nullable Path sourcePath) {
+    this.sourcePath = sourcePath;
+  }
+
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  public void setParallelism(final int parallelism) {
+    this.parallelism = parallelism;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.configuration;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.Positive;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@ConfigurationProperties(prefix = "app.patches")
+@Validated
+public class PatchConfiguration {
+  private boolean enabled = false;
+  private @Positive int maxDistance = 10;
+  private @Positive @DecimalMax("1") double maxRatio = 0.5;
+  private @Positive int parallelism = 1;
+  private @Positive int queue = 16;
+  private Duration retryAfter = Duration.ofSeconds(10);
+  private Duration failureBackoff = Duration.ofHours(1);
+
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  public void setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getMaxDistance() {
+    return this.maxDistance;
+  }
+
+  public void setMaxDistance(final int maxDistance) {
+    this.maxDistance = maxDistance;
+  }
+
+  public double getMaxRatio() {
+    return this.maxRatio;
+  }
+
+  public void setMaxRatio(final double maxRatio) {
+    this.maxRatio = maxRatio;
+  }
+
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  public void setParallelism(final int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  public int getQueue() {
+    return this.queue;
+  }
+
+  public void setQueue(final int queue) {
+    this.queue = queue;
+  }
+
+  public Duration getRetryAfter() {
+    return this.retryAfter;
+  }
+
+  public void setRetryAfter(final Duration retryAfter) {
+    this.retryAfter = retryAfter;
+  }
+
+  public Duration getFailureBackoff() {
+    return this.failureBackoff;
+  }
+
+  public void setFailureBackoff(final Duration failureBackoff) {
+    this.failureBackoff = failureBackoff;
+  }
+}
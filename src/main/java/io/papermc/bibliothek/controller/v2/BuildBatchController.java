@@ -0,0 +1,146 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.controller.v2;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.papermc.bibliothek.catalog.BuildResolver;
+import io.papermc.bibliothek.catalog.ResolvedBuild;
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.Project;
+import io.papermc.bibliothek.database.model.Version;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+public class BuildBatchController {
+  private static final int MAX_BUILDS = 100;
+  private final BuildResolver builds;
+
+  @Autowired
+  private BuildBatchController(final BuildResolver builds) {
+    this.builds = builds;
+  }
+
+  @ApiResponse(
+    content = @Content(
+      schema = @Schema(implementation = BuildBatchResponse.class)
+    ),
+    responseCode = "200"
+  )
+  @PostMapping(value = "/v2/builds", consumes = MediaType.APPLICATION_JSON_VALUE)
+  @Operation(summary = "Gets information related to many specific builds at once.")
+  public BuildBatchResponse builds(
+    @RequestBody
+    @NotEmpty
+    @Size(max = MAX_BUILDS) //
+    final List<@Valid BuildRequest> requests
+  ) {
+    final List<@Nullable ResolvedBuild> resolved = this.builds.resolveAll(requests.stream().map(BuildRequest::coordinates).toList());
+    return new BuildBatchResponse(resolved.stream()
+      .map(build -> build != null ? BuildResult.from(build.project(), build.version(), build.build()) : BuildResult.NOT_FOUND)
+      .toList());
+  }
+
+  @Schema
+  record BuildRequest(
+    @Schema(name = "project", pattern = "[a-z]+", example = "paper")
+    @NotNull @Pattern(regexp = "[a-z]+") String project,
+    @Schema(name = "version", pattern = Version.PATTERN, example = "1.18")
+    @NotNull @Pattern(regexp = Version.PATTERN) String version,
+    @Schema(name = "build", pattern = "\\d+", example = "10")
+    @Positive int build
+  ) {
+    BuildResolver.Coordinates coordinates() {
+      return new BuildResolver.Coordinates(this.project, this.version, this.build);
+    }
+  }
+
+  @Schema
+  record BuildBatchResponse(
+    @Schema(name = "builds", description = "A result for each requested build, in the order they were requested in.")
+    List<BuildResult> builds
+  ) {
+  }
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  @Schema
+  record BuildResult(
+    @Schema(name = "error", description = "Set instead of everything else if the build was not found.", example = "Build not found.")
+    @Nullable String error,
+    @Schema(name = "project_id", pattern = "[a-z]+", example = "paper")
+    @Nullable String project_id,
+    @Schema(name = "project_name", example = "Paper")
+    @Nullable String project_name,
+    @Schema(name = "version", pattern = Version.PATTERN, example = "1.18")
+    @Nullable String version,
+    @Schema(name = "build", pattern = "\\d+", example = "10")
+    @Nullable Integer build,
+    @Schema(name = "time")
+    @Nullable Instant time,
+    @Schema(name = "channel")
+    @Nullable Build.Channel channel,
+    @Schema(name = "promoted")
+    @Nullable Boolean promoted,
+    @Schema(name = "changes")
+    @Nullable List<Build.Change> changes,
+    @Schema(name = "downloads")
+    @Nullable Map<String, Build.Download> downloads
+  ) {
+    static final BuildResult NOT_FOUND = new BuildResult("Build not found.", null, null, null, null, null, null, null, null, null);
+
+    static BuildResult from(final Project project, final Version version, final Build build) {
+      return new BuildResult(
+        null,
+        project.name(),
+        project.friendlyName(),
+        version.name(),
+        build.number(),
+        build.time(),
+        build.channelOrDefault(),
+        build.promotedOrDefault(),
+        build.changes(),
+        build.downloads()
+      );
+    }
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.controller.v2;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.papermc.bibliothek.catalog.BuildResolver;
+import io.papermc.bibliothek.catalog.ResolvedBuild;
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.Version;
+import io.papermc.bibliothek.download.DownloadStorage;
+import io.papermc.bibliothek.exception.DownloadConflict;
+import io.papermc.bibliothek.exception.DownloadFailed;
+import io.papermc.bibliothek.exception.DownloadNotFound;
+import io.papermc.bibliothek.util.HTTP;
+import io.papermc.bibliothek.util.MediaTypes;
+import io.papermc.bibliothek.util.Validators;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+@RestController
+@RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+public class BundleController {
+  private static final CacheControl CACHE = HTTP.sMaxAgePublicCache(Duration.ofDays(7));
+  private final BuildResolver builds;
+  private final DownloadStorage storage;
+  private final Meter.MeterProvider<Counter> bundles;
+
+  @Autowired
+  private BundleController(
+    final BuildResolver builds,
+    final DownloadStorage storage,
+    final MeterRegistry metrics
+  ) {
+    this.builds = builds;
+    this.storage = storage;
+    this.bundles = Counter.builder("bibliothek.bundles")
+      .description("Bundles served")
+      .withRegistry(metrics);
+  }
+
+  @ApiResponse(
+    responseCode = "200",
+    description = "A zip of the chosen downloads, streamed as it is written.",
+    headers = {
+      @Header(
+        name = "Content-Disposition",
+        description = "A header indicating that the content is expected to be displayed as an attachment, that is downloaded and saved locally.",
+        schema = @Schema(type = "string")
+      ),
+      @Header(
+        name = "ETag",
+        description = "A weak identifier for a specific version of a resource. The same downloads always make an equivalent zip, but not necessarily the same bytes.",
+        schema = @Schema(type = "string")
+      ),
+      @Header(
+        name = "Last-Modified",
+        description = "The date and time at which the origin server believes the resource was last modified.",
+        schema = @Schema(type = "string")
+      )
+    }
+  )
+  @ApiResponse(
+    responseCode = "409",
+    description = "Two of the chosen downloads are different files with the same name, which cannot both be in one zip."
+  )
+  @GetMapping(
+    value = "/v2/projects/{project:[a-z]+}/versions/{version:" + Version.PATTERN + "}/builds/{build:\\d+}/bundle",
+    produces = {
+      MediaType.APPLICATION_JSON_VALUE,
+      MediaTypes.APPLICATION_ZIP_VALUE
+    }
+  )
+  @Operation(summary = "Downloads several files from a build's data as a single zip.")
+  public void bundle(
+    @Parameter(name = "project", description = "The project identifier.", example = "paper")
+    @PathVariable("project")
+    @Pattern(regexp = "[a-z]+") //
+    final String projectName,
+    @Parameter(description = "A version of the project.")
+    @PathVariable("version")
+    @Pattern(regexp = Version.PATTERN) //
+    final String versionName,
+    @Parameter(description = "A build of the version.")
+    @PathVariable("build")
+    @Positive //
+    final int buildNumber,
+    @Parameter(description = "The kinds of downloads to include, such as application. Defaults to all of them.")
+    @RequestParam(value = "downloads", required = false)
+    final @Nullable List<String> downloadKinds,
+    final HttpServletRequest request,
+    final HttpServletResponse response
+  ) throws IOException {
+    final ResolvedBuild resolved = this.builds.resolve(projectName, versionName, buildNumber);
+    final Build build = resolved.build();
+
+    final List<Build.Download> chosen = new ArrayList<>();
+    if (downloadKinds == null) {
+      chosen.addAll(build.downloads().values());
+    } else {
+      for (final String kind : downloadKinds) {
+        final Build.Download download = build.downloads().get(kind);
+        if (download == null) {
+          throw new DownloadNotFound();
+        }
+        chosen.add(download);
+      }
+    }
+    // the same downloads make the same zip, whichever order they were asked for in
+    final List<Build.Download> members = chosen.stream().distinct().sorted(Comparator.comparing(Build.Download::name)).toList();
+    // a zip cannot hold two entries with the same name, and this is our last chance to say so
+    final Set<String> names = new HashSet<>();
+    for (final Build.Download member : members) {
+      if (!names.add(member.name())) {
+        throw new DownloadConflict("More than one of the chosen downloads is named " + member.name());
+      }
+    }
+
+    final Object[] parts = members.stream().map(download -> download.name() + "=" + download.sha256()).toArray();
+    // the bytes depend on how the zip is written, which is not ours to promise
+    final Validators validators = Validators.of(build.time(), parts).weak();
+    if (HTTP.checkNotModified(new ServletWebRequest(request, response), validators)) {
+      response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE.getHeaderValue());
+      return;
+    }
+
+    // opened up front, so a missing file is an error response rather than a truncated zip
+    final List<Member> opened = new ArrayList<>(members.size());
+    try {
+      for (final Build.Download download : members) {
+        final Path path = this.storage.path(resolved, download);
+        try {
+          opened.add(new Member(download.name(), Files.newInputStream(path)));
+        } catch (final IOException e) {
+          throw new DownloadFailed(e);
+        }
+      }
+
+      response.setStatus(HttpStatus.OK.value());
+      response.setContentType(MediaTypes.APPLICATION_ZIP_VALUE);
+      response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE.getHeaderValue());
+      response.setHeader(HttpHeaders.CONTENT_DISPOSITION, HTTP.attachmentDisposition(Path.of(resolved.project().name() + "-" + resolved.version().name() + "-" + build.number() + ".zip")).toString());
+      response.setHeader(HttpHeaders.ETAG, validators.etag());
+      response.setDateHeader(HttpHeaders.LAST_MODIFIED, build.time().toEpochMilli());
+      if (HttpMethod.HEAD.matches(request.getMethod())) {
+        return;
+      }
+
+      // the timestamp is set in UTC, so every instance writes the same entries for the same zip
+      final LocalDateTime time = LocalDateTime.ofInstant(build.time(), ZoneOffset.UTC);
+      try (final ZipOutputStream zip = new ZipOutputStream(response.getOutputStream())) {
+        // downloads are mostly archives already - compressing them again only costs time
+        zip.setLevel(Deflater.NO_COMPRESSION);
+        for (final Member member : opened) {
+          final ZipEntry entry = new ZipEntry(member.name());
+          entry.setTimeLocal(time);
+          zip.putNextEntry(entry);
+          member.in().transferTo(zip);
+          zip.closeEntry();
+        }
+      }
+      this.bundles.withTag("project", resolved.project().name()).increment();
+    } finally {
+      for (final Member member : opened) {
+        member.in().close();
+      }
+    }
+  }
+
+  private record Member(String name, InputStream in) {
+  }
+}
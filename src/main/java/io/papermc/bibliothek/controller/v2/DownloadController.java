@@ -23,69 +23,79 @@
  */
 package io.papermc.bibliothek.controller.v2;
 
-import io.papermc.bibliothek.configuration.AppConfiguration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.papermc.bibliothek.catalog.BuildResolver;
+import io.papermc.bibliothek.catalog.ResolvedBuild;
 import io.papermc.bibliothek.database.model.Build;
-import io.papermc.bibliothek.database.model.Project;
 import io.papermc.bibliothek.database.model.Version;
-import io.papermc.bibliothek.database.repository.BuildCollection;
-import io.papermc.bibliothek.database.repository.ProjectCollection;
-import io.papermc.bibliothek.database.repository.VersionCollection;
-import io.papermc.bibliothek.exception.BuildNotFound;
-import io.papermc.bibliothek.exception.DownloadFailed;
+import io.papermc.bibliothek.download.DownloadStorage;
+import io.papermc.bibliothek.download.DownloadWriter;
 import io.papermc.bibliothek.exception.DownloadNotFound;
-import io.papermc.bibliothek.exception.ProjectNotFound;
-import io.papermc.bibliothek.exception.VersionNotFound;
 import io.papermc.bibliothek.util.HTTP;
-import io.papermc.bibliothek.util.MediaTypes;
+import io.papermc.bibliothek.util.Validators;
+import io.papermc.bibliothek.warmup.WarmUp;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Positive;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 @RestController
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 public class DownloadController {
   private static final CacheControl CACHE = HTTP.sMaxAgePublicCache(Duration.ofDays(7));
-  private final AppConfiguration configuration;
-  private final ProjectCollection projects;
-  private final VersionCollection versions;
-  private final BuildCollection builds;
+  private final BuildResolver builds;
+  private final DownloadStorage storage;
+  private final DownloadWriter writer;
+  private final Meter.MeterProvider<Counter> files;
+  private final Meter.MeterProvider<Counter> bytes;
 
   @Autowired
   private DownloadController(
-    final AppConfiguration configuration,
-    final ProjectCollection projects,
-    final VersionCollection versions,
-    final BuildCollection builds
+    final BuildResolver builds,
+    final DownloadStorage storage,
+    final DownloadWriter writer,
+    final MeterRegistry metrics
   ) {
-    this.configuration = configuration;
-    this.projects = projects;
-    this.versions = versions;
     this.builds = builds;
+    this.storage = storage;
+    this.writer = writer;
+    this.files = Counter.builder("bibliothek.downloads")
+      .description("Files served, including partial requests")
+      .withRegistry(metrics);
+    this.bytes = Counter.builder("bibliothek.downloads.bytes")
+      .description("Body bytes served - transfers cut short by the client are counted in full")
+      .baseUnit("bytes")
+      .withRegistry(metrics);
   }
 
   @ApiResponse(
     responseCode = "200",
     headers = {
+      @Header(
+        name = "Accept-Ranges",
+        description = "Indicates that parts of the file can be requested using the Range header.",
+        schema = @Schema(type = "string")
+      ),
       @Header(
         name = "Content-Disposition",
         description = "A header indicating that the content is expected to be displayed as an attachment, that is downloaded and saved locally.",
@@ -103,6 +113,17 @@ public class DownloadController {
       )
     }
   )
+  @ApiResponse(
+    responseCode = "206",
+    description = "The requested ranges of the file.",
+    headers = {
+      @Header(
+        name = "Content-Range",
+        description = "Where in the full file the partial body belongs, for single range requests.",
+        schema = @Schema(type = "string")
+      )
+    }
+  )
   @GetMapping(
     value = "/v2/projects/{project:[a-z]+}/versions/{version:" + Version.PATTERN + "}/builds/{build:\\d+}/downloads/{download:" + Build.Download.PATTERN + "}",
     produces = {
@@ -111,7 +132,7 @@ public class DownloadController {
     }
   )
   @Operation(summary = "Downloads the given file from a build's data.")
-  public ResponseEntity<?> download(
+  public void download(
     @Parameter(name = "project", description = "The project identifier.", example = "paper")
     @PathVariable("project")
     @Pattern(regexp = "[a-z]+") //
@@ -127,43 +148,30 @@ public class DownloadController {
     @Parameter(description = "A download of the build.")
     @PathVariable("download")
     @Pattern(regexp = Build.Download.PATTERN) //
-    final String downloadName
-  ) {
-    final Project project = this.projects.findByName(projectName).orElseThrow(ProjectNotFound::new);
-    final Version version = this.versions.findByProjectAndName(project._id(), versionName).orElseThrow(VersionNotFound::new);
-    final Build build = this.builds.findByProjectAndVersionAndNumber(project._id(), version._id(), buildNumber).orElseThrow(BuildNotFound::new);
+    final String downloadName,
+    final HttpServletRequest request,
+    final HttpServletResponse response
+  ) throws IOException {
+    final ResolvedBuild resolved = this.builds.resolve(projectName, versionName, buildNumber);
+    final Build build = resolved.build();
 
     for (final Map.Entry<String, Build.Download> download : build.downloads().entrySet()) {
       if (download.getValue().name().equals(downloadName)) {
-        try {
-          return new JavaArchive(
-            this.configuration.getStoragePath()
-              .resolve(project.name())
-              .resolve(version.name())
-              .resolve(String.valueOf(build.number()))
-              .resolve(download.getValue().name()),
-            CACHE
-          );
-        } catch (final IOException e) {
-          throw new DownloadFailed(e);
+        // the file is identified by its hash, so we can answer conditional requests without touching it
+        final Validators validators = new Validators(Validators.quote(download.getValue().sha256()), build.time());
+        if (HTTP.checkNotModified(new ServletWebRequest(request, response), validators)) {
+          response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE.getHeaderValue());
+          return;
         }
+        final Path path = this.storage.path(resolved, download.getValue());
+        final long sent = this.writer.write(request, response, path, download.getValue().name(), validators, CACHE);
+        if (sent > 0 && !WarmUp.isWarmUp(request)) {
+          this.files.withTag("project", resolved.project().name()).increment();
+          this.bytes.withTag("project", resolved.project().name()).increment(sent);
+        }
+        return;
       }
     }
     throw new DownloadNotFound();
   }
-
-  private static class JavaArchive extends ResponseEntity<FileSystemResource> {
-    JavaArchive(final Path path, final CacheControl cache) throws IOException {
-      super(new FileSystemResource(path), headersFor(path, cache), HttpStatus.OK);
-    }
-
-    private static HttpHeaders headersFor(final Path path, final CacheControl cache) throws IOException {
-      final HttpHeaders headers = new HttpHeaders();
-      headers.setCacheControl(cache);
-      headers.setContentDisposition(HTTP.attachmentDisposition(path.getFileName()));
-      headers.setContentType(MediaTypes.fromFileName(path.getFileName().toString()));
-      headers.setLastModified(Files.getLastModifiedTime(path).toInstant());
-      return headers;
-    }
-  }
 }
@@ -0,0 +1,207 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.controller.v2;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.papermc.bibliothek.catalog.BuildResolver;
+import io.papermc.bibliothek.catalog.ResolvedBuild;
+import io.papermc.bibliothek.configuration.PatchConfiguration;
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.Version;
+import io.papermc.bibliothek.download.DownloadStorage;
+import io.papermc.bibliothek.download.DownloadWriter;
+import io.papermc.bibliothek.download.Patches;
+import io.papermc.bibliothek.exception.DownloadNotFound;
+import io.papermc.bibliothek.exception.PatchNotFound;
+import io.papermc.bibliothek.util.HTTP;
+import io.papermc.bibliothek.util.Validators;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+@RestController
+@RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+public class PatchController {
+  private static final CacheControl CACHE = HTTP.sMaxAgePublicCache(Duration.ofDays(7));
+  private static final String SOURCE_SHA256 = "X-Source-Sha256";
+  private static final String TARGET_SHA256 = "X-Target-Sha256";
+  private final PatchConfiguration configuration;
+  private final BuildResolver builds;
+  private final DownloadStorage storage;
+  private final Patches patches;
+  private final DownloadWriter writer;
+  private final Meter.MeterProvider<Counter> files;
+  private final Meter.MeterProvider<Counter> bytes;
+
+  @Autowired
+  private PatchController(
+    final PatchConfiguration configuration,
+    final BuildResolver builds,
+    final DownloadStorage storage,
+    final Patches patches,
+    final DownloadWriter writer,
+    final MeterRegistry metrics
+  ) {
+    this.configuration = configuration;
+    this.builds = builds;
+    this.storage = storage;
+    this.patches = patches;
+    this.writer = writer;
+    this.files = Counter.builder("bibliothek.patches")
+      .description("Patches served, including partial requests")
+      .withRegistry(metrics);
+    this.bytes = Counter.builder("bibliothek.patches.bytes")
+      .description("Body bytes of patches served - transfers cut short by the client are counted in full")
+      .baseUnit("bytes")
+      .withRegistry(metrics);
+  }
+
+  @ApiResponse(
+    responseCode = "200",
+    description = "A bsdiff patch that turns the download of the older build into this download.",
+    headers = {
+      @Header(
+        name = SOURCE_SHA256,
+        description = "The sha256 of the file the patch applies to. Clients must check their file against it before applying the patch.",
+        schema = @Schema(type = "string")
+      ),
+      @Header(
+        name = TARGET_SHA256,
+        description = "The sha256 of the file the patch produces. Clients must check the patched file against it.",
+        schema = @Schema(type = "string")
+      ),
+      @Header(
+        name = "ETag",
+        description = "An identifier for a specific version of a resource. It lets caches be more efficient and save bandwidth, as a web server does not need to resend a full response if the content has not changed.",
+        schema = @Schema(type = "string")
+      )
+    }
+  )
+  @ApiResponse(
+    responseCode = "404",
+    description = "There is no patch between the builds, it would not be much smaller than the download itself, or it could not be generated recently."
+  )
+  @ApiResponse(
+    responseCode = "503",
+    description = "The patch is being generated. Download the full file, or try again later.",
+    headers = {
+      @Header(
+        name = "Retry-After",
+        description = "How many seconds to wait before asking for the patch again.",
+        schema = @Schema(type = "integer")
+      )
+    }
+  )
+  @GetMapping(
+    value = "/v2/projects/{project:[a-z]+}/versions/{version:" + Version.PATTERN + "}/builds/{build:\\d+}/downloads/{download:" + Build.Download.PATTERN + "}/patches/{from:\\d+}",
+    produces = {
+      MediaType.APPLICATION_JSON_VALUE,
+      MediaType.ALL_VALUE
+    }
+  )
+  @Operation(summary = "Downloads a patch from the same download of an older build of the same version.")
+  public void patch(
+    @Parameter(name = "project", description = "The project identifier.", example = "paper")
+    @PathVariable("project")
+    @Pattern(regexp = "[a-z]+") //
+    final String projectName,
+    @Parameter(description = "A version of the project.")
+    @PathVariable("version")
+    @Pattern(regexp = Version.PATTERN) //
+    final String versionName,
+    @Parameter(description = "A build of the version.")
+    @PathVariable("build")
+    @Positive //
+    final int buildNumber,
+    @Parameter(description = "A download of the build.")
+    @PathVariable("download")
+    @Pattern(regexp = Build.Download.PATTERN) //
+    final String downloadName,
+    @Parameter(description = "The older build of the version to patch from.")
+    @PathVariable("from")
+    @Positive //
+    final int fromNumber,
+    @Parameter(description = "The sha256 of the file to patch, if the client wants it checked before downloading.")
+    @RequestParam(value = "sha256", required = false)
+    @Pattern(regexp = "[a-f0-9]{64}") //
+    final @Nullable String sha256,
+    final HttpServletRequest request,
+    final HttpServletResponse response
+  ) throws IOException {
+    if (!this.patches.enabled() || fromNumber >= buildNumber || buildNumber - fromNumber > this.configuration.getMaxDistance()) {
+      throw new PatchNotFound();
+    }
+    final ResolvedBuild target = this.builds.resolve(projectName, versionName, buildNumber);
+    final Map.Entry<String, Build.Download> download = target.build().downloads().entrySet().stream()
+      .filter(entry -> entry.getValue().name().equals(downloadName))
+      .findFirst()
+      .orElseThrow(DownloadNotFound::new);
+    final ResolvedBuild source = this.builds.resolve(projectName, versionName, fromNumber);
+    // the same kind of download, under whatever name it had in the older build
+    final Build.Download from = source.build().downloads().get(download.getKey());
+    if (from == null || sha256 != null && !sha256.equals(from.sha256())) {
+      throw new PatchNotFound();
+    }
+    final Build.Download to = download.getValue();
+
+    response.setHeader(SOURCE_SHA256, from.sha256());
+    response.setHeader(TARGET_SHA256, to.sha256());
+    // a client may only keep using its copy of a patch we would still serve
+    final Path path = this.patches.get(this.storage.path(source, from), from, this.storage.path(target, to), to);
+    // a patch is fully determined by the files on both ends
+    final Validators validators = new Validators(Validators.quote(from.sha256() + "-" + to.sha256()), target.build().time());
+    if (HTTP.checkNotModified(new ServletWebRequest(request, response), validators)) {
+      response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE.getHeaderValue());
+      return;
+    }
+    final long sent = this.writer.write(request, response, path, to.name() + ".bsdiff", validators, CACHE);
+    if (sent > 0) {
+      this.files.withTag("project", target.project().name()).increment();
+      this.bytes.withTag("project", target.project().name()).increment(sent);
+    }
+  }
+}
@@ -23,14 +23,13 @@
  */
 package io.papermc.bibliothek.controller.v2;
 
+import io.papermc.bibliothek.catalog.Catalog;
 import io.papermc.bibliothek.database.model.Project;
 import io.papermc.bibliothek.database.model.Version;
 import io.papermc.bibliothek.database.model.VersionFamily;
-import io.papermc.bibliothek.database.repository.ProjectCollection;
-import io.papermc.bibliothek.database.repository.VersionCollection;
-import io.papermc.bibliothek.database.repository.VersionFamilyCollection;
 import io.papermc.bibliothek.exception.ProjectNotFound;
 import io.papermc.bibliothek.util.HTTP;
+import io.papermc.bibliothek.util.Validators;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -38,7 +37,12 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.constraints.Pattern;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
@@ -47,24 +51,17 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 @RestController
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 public class ProjectController {
   private static final CacheControl CACHE = HTTP.sMaxAgePublicCache(Duration.ofMinutes(30));
-  private final ProjectCollection projects;
-  private final VersionFamilyCollection families;
-  private final VersionCollection versions;
+  private final Catalog catalog;
 
   @Autowired
-  private ProjectController(
-    final ProjectCollection projects,
-    final VersionFamilyCollection families,
-    final VersionCollection versions
-  ) {
-    this.projects = projects;
-    this.families = families;
-    this.versions = versions;
+  private ProjectController(final Catalog catalog) {
+    this.catalog = catalog;
   }
 
   @ApiResponse(
@@ -79,12 +76,24 @@ public class ProjectController {
     @Parameter(name = "project", description = "The project identifier.", example = "paper")
     @PathVariable("project")
     @Pattern(regexp = "[a-z]+") //
-    final String projectName
+    final String projectName,
+    final ServletWebRequest request
   ) {
-    final Project project = this.projects.findByName(projectName).orElseThrow(ProjectNotFound::new);
-    final List<VersionFamily> families = this.families.findAllByProject(project._id());
-    final List<Version> versions = this.versions.findAllByProject(project._id());
-    return HTTP.cachedOk(ProjectResponse.from(project, families, versions), CACHE);
+    final Project project = this.catalog.project(projectName).orElseThrow(ProjectNotFound::new);
+    final List<VersionFamily> families = this.catalog.families(project);
+    final List<Version> versions = this.catalog.versions(project);
+    final Validators validators = Validators.of(latest(families, versions), "project", project, families, versions);
+    if (HTTP.checkNotModified(request, validators)) {
+      return HTTP.cachedNotModified(CACHE);
+    }
+    return HTTP.cachedOk(ProjectResponse.from(project, families, versions), CACHE, validators);
+  }
+
+  private static @Nullable Instant latest(final List<VersionFamily> families, final List<Version> versions) {
+    return Stream.concat(families.stream().map(VersionFamily::time), versions.stream().map(Version::time))
+      .filter(Objects::nonNull)
+      .max(Comparator.naturalOrder())
+      .orElse(null);
   }
 
   @Schema
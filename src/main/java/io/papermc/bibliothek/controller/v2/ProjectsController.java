@@ -23,8 +23,8 @@
  */
 package io.papermc.bibliothek.controller.v2;
 
+import io.papermc.bibliothek.catalog.Catalog;
 import io.papermc.bibliothek.database.model.Project;
-import io.papermc.bibliothek.database.repository.ProjectCollection;
 import io.papermc.bibliothek.util.HTTP;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -44,11 +44,11 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 public class ProjectsController {
   private static final CacheControl CACHE = HTTP.sMaxAgePublicCache(Duration.ofDays(7));
-  private final ProjectCollection projects;
+  private final Catalog catalog;
 
   @Autowired
-  private ProjectsController(final ProjectCollection projects) {
-    this.projects = projects;
+  private ProjectsController(final Catalog catalog) {
+    this.catalog = catalog;
   }
 
   @ApiResponse(
@@ -60,7 +60,7 @@ public class ProjectsController {
   @GetMapping("/v2/projects")
   @Operation(summary = "Gets a list of all available projects.")
   public ResponseEntity<?> projects() {
-    final List<Project> projects = this.projects.findAll();
+    final List<Project> projects = this.catalog.projects();
     return HTTP.cachedOk(ProjectsResponse.from(projects), CACHE);
   }
 
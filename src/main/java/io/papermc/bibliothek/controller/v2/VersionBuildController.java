@@ -23,15 +23,11 @@
  */
 package io.papermc.bibliothek.controller.v2;
 
+import io.papermc.bibliothek.catalog.BuildResolver;
+import io.papermc.bibliothek.catalog.ResolvedBuild;
 import io.papermc.bibliothek.database.model.Build;
 import io.papermc.bibliothek.database.model.Project;
 import io.papermc.bibliothek.database.model.Version;
-import io.papermc.bibliothek.database.repository.BuildCollection;
-import io.papermc.bibliothek.database.repository.ProjectCollection;
-import io.papermc.bibliothek.database.repository.VersionCollection;
-import io.papermc.bibliothek.exception.BuildNotFound;
-import io.papermc.bibliothek.exception.ProjectNotFound;
-import io.papermc.bibliothek.exception.VersionNotFound;
 import io.papermc.bibliothek.util.HTTP;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -57,18 +53,10 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 public class VersionBuildController {
   private static final CacheControl CACHE = HTTP.sMaxAgePublicCache(Duration.ofDays(7));
-  private final ProjectCollection projects;
-  private final VersionCollection versions;
-  private final BuildCollection builds;
+  private final BuildResolver builds;
 
   @Autowired
-  private VersionBuildController(
-    final ProjectCollection projects,
-    final VersionCollection versions,
-    final BuildCollection builds
-  ) {
-    this.projects = projects;
-    this.versions = versions;
+  private VersionBuildController(final BuildResolver builds) {
     this.builds = builds;
   }
 
@@ -94,10 +82,8 @@ public class VersionBuildController {
     @Positive //
     final int buildNumber
   ) {
-    final Project project = this.projects.findByName(projectName).orElseThrow(ProjectNotFound::new);
-    final Version version = this.versions.findByProjectAndName(project._id(), versionName).orElseThrow(VersionNotFound::new);
-    final Build build = this.builds.findByProjectAndVersionAndNumber(project._id(), version._id(), buildNumber).orElseThrow(BuildNotFound::new);
-    return HTTP.cachedOk(BuildResponse.from(project, version, build), CACHE);
+    final ResolvedBuild resolved = this.builds.resolve(projectName, versionName, buildNumber);
+    return HTTP.cachedOk(BuildResponse.from(resolved.project(), resolved.version(), resolved.build()), CACHE);
   }
 
   @Schema
@@ -23,51 +23,68 @@
  */
 package io.papermc.bibliothek.controller.v2;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.papermc.bibliothek.cache.ResponseCache;
+import io.papermc.bibliothek.catalog.BuildFingerprints;
+import io.papermc.bibliothek.catalog.Catalog;
 import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.BuildFingerprint;
 import io.papermc.bibliothek.database.model.Project;
 import io.papermc.bibliothek.database.model.Version;
 import io.papermc.bibliothek.database.repository.BuildCollection;
-import io.papermc.bibliothek.database.repository.ProjectCollection;
-import io.papermc.bibliothek.database.repository.VersionCollection;
+import io.papermc.bibliothek.database.repository.BuildPage;
 import io.papermc.bibliothek.exception.ProjectNotFound;
 import io.papermc.bibliothek.exception.VersionNotFound;
+import io.papermc.bibliothek.util.ContentEncoding;
 import io.papermc.bibliothek.util.HTTP;
+import io.papermc.bibliothek.util.Validators;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 @RestController
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 public class VersionBuildsController {
   private static final CacheControl CACHE = HTTP.sMaxAgePublicCache(Duration.ofMinutes(5));
-  private final ProjectCollection projects;
-  private final VersionCollection versions;
+  private final Catalog catalog;
   private final BuildCollection builds;
+  private final BuildFingerprints fingerprints;
+  private final ResponseCache cache;
+  private final ObjectMapper json;
 
   @Autowired
   private VersionBuildsController(
-    final ProjectCollection projects,
-    final VersionCollection versions,
-    final BuildCollection builds
+    final Catalog catalog,
+    final BuildCollection builds,
+    final BuildFingerprints fingerprints,
+    final ResponseCache cache,
+    final ObjectMapper json
   ) {
-    this.projects = projects;
-    this.versions = versions;
+    this.catalog = catalog;
     this.builds = builds;
+    this.fingerprints = fingerprints;
+    this.cache = cache;
+    this.json = json;
   }
 
   @ApiResponse(
@@ -86,12 +103,56 @@ public class VersionBuildsController {
     @Parameter(description = "A version of the project.")
     @PathVariable("version")
     @Pattern(regexp = Version.PATTERN) //
-    final String versionName
+    final String versionName,
+    @Parameter(description = "The maximum number of builds to return.")
+    @RequestParam(value = "limit", required = false)
+    @Positive //
+    final @Nullable Integer limit,
+    @Parameter(description = "Only return builds with a number greater than this one.")
+    @RequestParam(value = "after", required = false)
+    final @Nullable Integer after,
+    @Parameter(description = "Only return builds with a number less than this one.")
+    @RequestParam(value = "before", required = false)
+    final @Nullable Integer before,
+    @Parameter(description = "The order of the builds, either oldest (asc) or newest (desc) first.")
+    @RequestParam(value = "order", defaultValue = "asc")
+    @Pattern(regexp = "asc|desc") //
+    final String order,
+    final ServletWebRequest request
   ) {
-    final Project project = this.projects.findByName(projectName).orElseThrow(ProjectNotFound::new);
-    final Version version = this.versions.findByProjectAndName(project._id(), versionName).orElseThrow(VersionNotFound::new);
-    final List<Build> builds = this.builds.findAllByProjectAndVersion(project._id(), version._id());
-    return HTTP.cachedOk(BuildsResponse.from(project, version, builds), CACHE);
+    final Project project = this.catalog.project(projectName).orElseThrow(ProjectNotFound::new);
+    final Version version = this.catalog.version(project, versionName).orElseThrow(VersionNotFound::new);
+    final BuildPage page = new BuildPage(after, before, limit, "desc".equals(order));
+    if (!page.isAll() || !this.cache.enabled()) {
+      return this.page(project, version, page, request);
+    }
+    final @Nullable ContentEncoding encoding = this.cache.negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    final ResponseCache.CachedResponse response = this.cache.get(
+      ResponseCache.Key.version(project, version),
+      validators -> HTTP.checkNotModified(request, ContentEncoding.validators(encoding, validators)),
+      () -> {
+        final BuildFingerprint fingerprint = this.fingerprints.of(project._id(), version._id());
+        return Validators.of(fingerprint.time(), "builds", project, version, fingerprint);
+      },
+      () -> {
+        final List<Build> builds = this.builds.findAllByProjectAndVersion(project._id(), version._id());
+        return this.json.writeValueAsBytes(BuildsResponse.from(project, version, builds));
+      }
+    );
+    if (response == null) {
+      return HTTP.encodedNotModified(CACHE);
+    }
+    return HTTP.encodedOk(response.body(encoding), CACHE, ContentEncoding.validators(encoding, response.validators()), encoding);
+  }
+
+  private ResponseEntity<?> page(final Project project, final Version version, final BuildPage page, final ServletWebRequest request) {
+    final BuildFingerprint fingerprint = this.fingerprints.of(project._id(), version._id());
+    final Validators validators = Validators.of(fingerprint.time(), "builds", project, version, fingerprint, page);
+    if (HTTP.checkNotModified(request, validators)) {
+      return HTTP.cachedNotModified(CACHE);
+    }
+    final List<Build> builds = this.builds.findPage(project._id(), version._id(), page);
+    return HTTP.cachedOk(BuildsResponse.from(project, version, builds), CACHE, validators);
   }
 
   @Schema
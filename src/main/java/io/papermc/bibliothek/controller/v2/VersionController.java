@@ -23,15 +23,17 @@
  */
 package io.papermc.bibliothek.controller.v2;
 
-import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.catalog.BuildFingerprints;
+import io.papermc.bibliothek.catalog.Catalog;
+import io.papermc.bibliothek.database.model.BuildFingerprint;
+import io.papermc.bibliothek.database.model.BuildNumber;
 import io.papermc.bibliothek.database.model.Project;
 import io.papermc.bibliothek.database.model.Version;
 import io.papermc.bibliothek.database.repository.BuildCollection;
-import io.papermc.bibliothek.database.repository.ProjectCollection;
-import io.papermc.bibliothek.database.repository.VersionCollection;
 import io.papermc.bibliothek.exception.ProjectNotFound;
 import io.papermc.bibliothek.exception.VersionNotFound;
 import io.papermc.bibliothek.util.HTTP;
+import io.papermc.bibliothek.util.Validators;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -48,24 +50,25 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 @RestController
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 public class VersionController {
   private static final CacheControl CACHE = HTTP.sMaxAgePublicCache(Duration.ofMinutes(5));
-  private final ProjectCollection projects;
-  private final VersionCollection versions;
+  private final Catalog catalog;
   private final BuildCollection builds;
+  private final BuildFingerprints fingerprints;
 
   @Autowired
   private VersionController(
-    final ProjectCollection projects,
-    final VersionCollection versions,
-    final BuildCollection builds
+    final Catalog catalog,
+    final BuildCollection builds,
+    final BuildFingerprints fingerprints
   ) {
-    this.projects = projects;
-    this.versions = versions;
+    this.catalog = catalog;
     this.builds = builds;
+    this.fingerprints = fingerprints;
   }
 
   @ApiResponse(
@@ -84,12 +87,18 @@ public class VersionController {
     @Parameter(description = "A version of the project.")
     @PathVariable("version")
     @Pattern(regexp = Version.PATTERN) //
-    final String versionName
+    final String versionName,
+    final ServletWebRequest request
   ) {
-    final Project project = this.projects.findByName(projectName).orElseThrow(ProjectNotFound::new);
-    final Version version = this.versions.findByProjectAndName(project._id(), versionName).orElseThrow(VersionNotFound::new);
-    final List<Build> builds = this.builds.findAllByProjectAndVersion(project._id(), version._id());
-    return HTTP.cachedOk(VersionResponse.from(project, version, builds), CACHE);
+    final Project project = this.catalog.project(projectName).orElseThrow(ProjectNotFound::new);
+    final Version version = this.catalog.version(project, versionName).orElseThrow(VersionNotFound::new);
+    final BuildFingerprint fingerprint = this.fingerprints.of(project._id(), version._id());
+    final Validators validators = Validators.of(fingerprint.time(), "version", project, version, fingerprint);
+    if (HTTP.checkNotModified(request, validators)) {
+      return HTTP.cachedNotModified(CACHE);
+    }
+    final List<BuildNumber> builds = this.builds.findNumbersByProjectAndVersion(project._id(), version._id());
+    return HTTP.cachedOk(VersionResponse.from(project, version, builds), CACHE, validators);
   }
 
   @Schema
@@ -103,12 +112,12 @@ public class VersionController {
     @Schema(name = "builds")
     List<Integer> builds
   ) {
-    static VersionResponse from(final Project project, final Version version, final List<Build> builds) {
+    static VersionResponse from(final Project project, final Version version, final List<BuildNumber> builds) {
       return new VersionResponse(
         project.name(),
         project.friendlyName(),
         version.name(),
-        builds.stream().map(Build::number).toList()
+        builds.stream().map(BuildNumber::number).toList()
       );
     }
   }
@@ -23,59 +23,80 @@
  */
 package io.papermc.bibliothek.controller.v2;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.papermc.bibliothek.cache.ResponseCache;
+import io.papermc.bibliothek.catalog.BuildFingerprints;
+import io.papermc.bibliothek.catalog.Catalog;
 import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.BuildFingerprint;
 import io.papermc.bibliothek.database.model.Project;
 import io.papermc.bibliothek.database.model.Version;
 import io.papermc.bibliothek.database.model.VersionFamily;
 import io.papermc.bibliothek.database.repository.BuildCollection;
-import io.papermc.bibliothek.database.repository.ProjectCollection;
-import io.papermc.bibliothek.database.repository.VersionCollection;
-import io.papermc.bibliothek.database.repository.VersionFamilyCollection;
+import io.papermc.bibliothek.database.repository.BuildPage;
 import io.papermc.bibliothek.exception.ProjectNotFound;
 import io.papermc.bibliothek.exception.VersionNotFound;
+import io.papermc.bibliothek.util.ContentEncoding;
 import io.papermc.bibliothek.util.HTTP;
+import io.papermc.bibliothek.util.Validators;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.bson.types.ObjectId;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 public class VersionFamilyBuildsController {
   private static final CacheControl CACHE = HTTP.sMaxAgePublicCache(Duration.ofMinutes(5));
-  private final ProjectCollection projects;
-  private final VersionFamilyCollection families;
-  private final VersionCollection versions;
+  private final Catalog catalog;
   private final BuildCollection builds;
+  private final BuildFingerprints fingerprints;
+  private final ResponseCache cache;
+  private final ObjectMapper json;
 
   @Autowired
   private VersionFamilyBuildsController(
-    final ProjectCollection projects,
-    final VersionFamilyCollection families,
-    final VersionCollection versions,
-    final BuildCollection builds
+    final Catalog catalog,
+    final BuildCollection builds,
+    final BuildFingerprints fingerprints,
+    final ResponseCache cache,
+    final ObjectMapper json
   ) {
-    this.projects = projects;
-    this.families = families;
-    this.versions = versions;
+    this.catalog = catalog;
     this.builds = builds;
+    this.fingerprints = fingerprints;
+    this.cache = cache;
+    this.json = json;
   }
 
   @ApiResponse(
@@ -94,18 +115,79 @@ public class VersionFamilyBuildsController {
     @Parameter(description = "The version group name.")
     @PathVariable("family")
     @Pattern(regexp = Version.PATTERN) //
-    final String familyName
+    final String familyName,
+    @Parameter(description = "The maximum number of builds to return.")
+    @RequestParam(value = "limit", required = false)
+    @Positive //
+    final @Nullable Integer limit,
+    @Parameter(description = "The order of the builds, either oldest (asc) or newest (desc) first.")
+    @RequestParam(value = "order", defaultValue = "asc")
+    @Pattern(regexp = "asc|desc") //
+    final String order,
+    final ServletWebRequest request
   ) {
-    final Project project = this.projects.findByName(projectName).orElseThrow(ProjectNotFound::new);
-    final VersionFamily family = this.families.findByProjectAndName(project._id(), familyName).orElseThrow(VersionNotFound::new);
-    final Map<ObjectId, Version> versions = this.versions.findAllByProjectAndGroup(project._id(), family._id()).stream()
+    final Project project = this.catalog.project(projectName).orElseThrow(ProjectNotFound::new);
+    final VersionFamily family = this.catalog.family(project, familyName).orElseThrow(VersionNotFound::new);
+    final List<Version> members = this.catalog.versions(project, family);
+    final Map<ObjectId, Version> versions = members.stream()
       .collect(Collectors.toMap(Version::_id, Function.identity()));
-    final List<Build> builds = this.builds.findAllByProjectAndVersionIn(project._id(), versions.keySet());
-    return HTTP.cachedOk(VersionFamilyBuildsResponse.from(project, family, versions, builds), CACHE);
+    final BuildPage page = new BuildPage(null, null, limit, "desc".equals(order));
+    if (!page.isAll() || !this.cache.enabled()) {
+      return this.page(project, family, members, versions, page, request);
+    }
+    final @Nullable ContentEncoding encoding = this.cache.negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    final ResponseCache.CachedResponse response = this.cache.get(
+      ResponseCache.Key.family(project, family),
+      validators -> HTTP.checkNotModified(request, ContentEncoding.validators(encoding, validators)),
+      () -> {
+        final BuildFingerprint fingerprint = this.fingerprints.of(project._id(), versions.keySet());
+        return Validators.of(fingerprint.time(), "family-builds", project, family, members, fingerprint);
+      },
+      () -> {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.write(out, project, family, versions, this.builds.streamAllByProjectAndVersionIn(project._id(), versions.keySet()));
+        return out.toByteArray();
+      }
+    );
+    if (response == null) {
+      return HTTP.encodedNotModified(CACHE);
+    }
+    return HTTP.encodedOk(response.body(encoding), CACHE, ContentEncoding.validators(encoding, response.validators()), encoding);
+  }
+
+  private ResponseEntity<?> page(
+    final Project project,
+    final VersionFamily family,
+    final List<Version> members,
+    final Map<ObjectId, Version> versions,
+    final BuildPage page,
+    final ServletWebRequest request
+  ) {
+    final BuildFingerprint fingerprint = this.fingerprints.of(project._id(), versions.keySet());
+    final Validators validators = Validators.of(fingerprint.time(), "family-builds", project, family, members, fingerprint, page);
+    if (HTTP.checkNotModified(request, validators)) {
+      return HTTP.cachedNotModified(CACHE);
+    }
+    // not cached, and without a limit this can be just as large as the full list
+    final StreamingResponseBody body = out -> this.write(out, project, family, versions, this.builds.streamPage(project._id(), versions.keySet(), page));
+    return HTTP.cachedOk(body, CACHE, validators);
+  }
+
+  private void write(
+    final OutputStream out,
+    final Project project,
+    final VersionFamily family,
+    final Map<ObjectId, Version> versions,
+    final Stream<Build> builds
+  ) throws IOException {
+    try (builds; final JsonGenerator generator = this.json.createGenerator(out, JsonEncoding.UTF8)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      VersionFamilyBuildsResponse.write(generator, project, family, versions, builds);
+    }
   }
 
   @Schema
-  private record VersionFamilyBuildsResponse(
+  record VersionFamilyBuildsResponse(
     @Schema(name = "project_id", pattern = "[a-z]+", example = "paper")
     String project_id,
     @Schema(name = "project_name", example = "Paper")
@@ -123,18 +205,30 @@ public class VersionFamilyBuildsController {
         project.friendlyName(),
         family.name(),
         versions.values().stream().sorted(Version.COMPARATOR).map(Version::name).toList(),
-        builds.stream().map(build -> new VersionFamilyBuild(
-          versions.get(build.version()).name(),
-          build.number(),
-          build.time(),
-          build.channelOrDefault(),
-          build.promotedOrDefault(),
-          build.changes(),
-          build.downloads()
-        )).toList()
+        builds.stream().map(build -> VersionFamilyBuild.from(versions, build)).toList()
       );
     }
 
+    // writes the same document as serializing the result of from(), one build at a time
+    static void write(final JsonGenerator generator, final Project project, final VersionFamily family, final Map<ObjectId, Version> versions, final Stream<Build> builds) throws IOException {
+      generator.writeStartObject();
+      generator.writeStringField("project_id", project.name());
+      generator.writeStringField("project_name", project.friendlyName());
+      generator.writeStringField("version_group", family.name());
+      generator.writeArrayFieldStart("versions");
+      for (final Version version : versions.values().stream().sorted(Version.COMPARATOR).toList()) {
+        generator.writeString(version.name());
+      }
+      generator.writeEndArray();
+      generator.writeArrayFieldStart("builds");
+      final Iterator<Build> iterator = builds.iterator();
+      while (iterator.hasNext()) {
+        generator.writeObject(VersionFamilyBuild.from(versions, iterator.next()));
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+
     @Schema
     public static record VersionFamilyBuild(
       @Schema(name = "version", pattern = Version.PATTERN, example = "1.18")
@@ -152,6 +246,17 @@ public class VersionFamilyBuildsController {
       @Schema(name = "downloads")
       Map<String, Build.Download> downloads
     ) {
+      static VersionFamilyBuild from(final Map<ObjectId, Version> versions, final Build build) {
+        return new VersionFamilyBuild(
+          versions.get(build.version()).name(),
+          build.number(),
+          build.time(),
+          build.channelOrDefault(),
+          build.promotedOrDefault(),
+          build.changes(),
+          build.downloads()
+        );
+      }
     }
   }
 }
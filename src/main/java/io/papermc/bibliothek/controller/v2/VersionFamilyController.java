@@ -23,15 +23,14 @@
  */
 package io.papermc.bibliothek.controller.v2;
 
+import io.papermc.bibliothek.catalog.Catalog;
 import io.papermc.bibliothek.database.model.Project;
 import io.papermc.bibliothek.database.model.Version;
 import io.papermc.bibliothek.database.model.VersionFamily;
-import io.papermc.bibliothek.database.repository.ProjectCollection;
-import io.papermc.bibliothek.database.repository.VersionCollection;
-import io.papermc.bibliothek.database.repository.VersionFamilyCollection;
 import io.papermc.bibliothek.exception.ProjectNotFound;
 import io.papermc.bibliothek.exception.VersionNotFound;
 import io.papermc.bibliothek.util.HTTP;
+import io.papermc.bibliothek.util.Validators;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -39,7 +38,12 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.constraints.Pattern;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
@@ -48,24 +52,17 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 @RestController
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 public class VersionFamilyController {
   private static final CacheControl CACHE = HTTP.sMaxAgePublicCache(Duration.ofMinutes(5));
-  private final ProjectCollection projects;
-  private final VersionFamilyCollection families;
-  private final VersionCollection versions;
+  private final Catalog catalog;
 
   @Autowired
-  private VersionFamilyController(
-    final ProjectCollection projects,
-    final VersionFamilyCollection families,
-    final VersionCollection versions
-  ) {
-    this.projects = projects;
-    this.families = families;
-    this.versions = versions;
+  private VersionFamilyController(final Catalog catalog) {
+    this.catalog = catalog;
   }
 
   @ApiResponse(
@@ -84,12 +81,24 @@ public class VersionFamilyController {
     @Parameter(description = "The version group name.")
     @PathVariable("family")
     @Pattern(regexp = Version.PATTERN) //
-    final String familyName
+    final String familyName,
+    final ServletWebRequest request
   ) {
-    final Project project = this.projects.findByName(projectName).orElseThrow(ProjectNotFound::new);
-    final VersionFamily family = this.families.findByProjectAndName(project._id(), familyName).orElseThrow(VersionNotFound::new);
-    final List<Version> versions = this.versions.findAllByProjectAndGroup(project._id(), family._id());
-    return HTTP.cachedOk(VersionFamilyResponse.from(project, family, versions), CACHE);
+    final Project project = this.catalog.project(projectName).orElseThrow(ProjectNotFound::new);
+    final VersionFamily family = this.catalog.family(project, familyName).orElseThrow(VersionNotFound::new);
+    final List<Version> versions = this.catalog.versions(project, family);
+    final Validators validators = Validators.of(latest(family, versions), "family", project, family, versions);
+    if (HTTP.checkNotModified(request, validators)) {
+      return HTTP.cachedNotModified(CACHE);
+    }
+    return HTTP.cachedOk(VersionFamilyResponse.from(project, family, versions), CACHE, validators);
+  }
+
+  private static @Nullable Instant latest(final VersionFamily family, final List<Version> versions) {
+    return Stream.concat(Stream.of(family.time()), versions.stream().map(Version::time))
+      .filter(Objects::nonNull)
+      .max(Comparator.naturalOrder())
+      .orElse(null);
   }
 
   @Schema
@@ -0,0 +1,147 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.controller.v2;
+
+import io.papermc.bibliothek.catalog.BuildSummaries;
+import io.papermc.bibliothek.catalog.Catalog;
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.Project;
+import io.papermc.bibliothek.database.model.Version;
+import io.papermc.bibliothek.exception.BuildNotFound;
+import io.papermc.bibliothek.exception.ProjectNotFound;
+import io.papermc.bibliothek.exception.VersionNotFound;
+import io.papermc.bibliothek.util.HTTP;
+import io.papermc.bibliothek.util.Validators;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.validation.constraints.Pattern;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+@RestController
+@RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+public class VersionLatestBuildController {
+  private static final CacheControl CACHE = HTTP.sMaxAgePublicCache(Duration.ofMinutes(1));
+  private final Catalog catalog;
+  private final BuildSummaries summaries;
+
+  @Autowired
+  private VersionLatestBuildController(
+    final Catalog catalog,
+    final BuildSummaries summaries
+  ) {
+    this.catalog = catalog;
+    this.summaries = summaries;
+  }
+
+  @ApiResponse(
+    content = @Content(
+      schema = @Schema(implementation = BuildResponse.class)
+    ),
+    responseCode = "200"
+  )
+  @GetMapping("/v2/projects/{project:[a-z]+}/versions/{version:" + Version.PATTERN + "}/builds/latest")
+  @Operation(summary = "Gets the newest build of a version.")
+  public ResponseEntity<?> latest(
+    @Parameter(name = "project", description = "The project identifier.", example = "paper")
+    @PathVariable("project")
+    @Pattern(regexp = "[a-z]+") //
+    final String projectName,
+    @Parameter(description = "A version of the project.")
+    @PathVariable("version")
+    @Pattern(regexp = Version.PATTERN) //
+    final String versionName,
+    @Parameter(description = "Only consider builds in this channel.")
+    @RequestParam(value = "channel", required = false)
+    @Pattern(regexp = "default|experimental") //
+    final @Nullable String channel,
+    @Parameter(description = "Only consider promoted builds.")
+    @RequestParam(value = "promoted", defaultValue = "false")
+    final boolean promoted,
+    final ServletWebRequest request
+  ) {
+    final Project project = this.catalog.project(projectName).orElseThrow(ProjectNotFound::new);
+    final Version version = this.catalog.version(project, versionName).orElseThrow(VersionNotFound::new);
+    final Build build = this.summaries.latest(project, version, channel != null ? Build.Channel.valueOf(channel.toUpperCase(Locale.ROOT)) : null, promoted)
+      .orElseThrow(BuildNotFound::new);
+    final Validators validators = Validators.of(build.time(), "latest", project, version, build);
+    if (HTTP.checkNotModified(request, validators)) {
+      return HTTP.cachedNotModified(CACHE);
+    }
+    return HTTP.cachedOk(BuildResponse.from(project, version, build), CACHE, validators);
+  }
+
+  @Schema
+  private record BuildResponse(
+    @Schema(name = "project_id", pattern = "[a-z]+", example = "paper")
+    String project_id,
+    @Schema(name = "project_name", example = "Paper")
+    String project_name,
+    @Schema(name = "version", pattern = Version.PATTERN, example = "1.18")
+    String version,
+    @Schema(name = "build", pattern = "\\d+", example = "10")
+    int build,
+    @Schema(name = "time")
+    Instant time,
+    @Schema(name = "channel")
+    Build.Channel channel,
+    @Schema(name = "promoted")
+    boolean promoted,
+    @Schema(name = "changes")
+    List<Build.Change> changes,
+    @Schema(name = "downloads")
+    Map<String, Build.Download> downloads
+  ) {
+    static BuildResponse from(final Project project, final Version version, final Build build) {
+      return new BuildResponse(
+        project.name(),
+        project.friendlyName(),
+        version.name(),
+        build.number(),
+        build.time(),
+        build.channelOrDefault(),
+        build.promotedOrDefault(),
+        build.changes(),
+        build.downloads()
+      );
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.database.change;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import io.papermc.bibliothek.configuration.CacheConfiguration;
+import java.util.concurrent.TimeUnit;
+import org.bson.Document;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Watches the database change stream and republishes every change as a {@link CollectionChanged} event.
+ *
+ * <p>Change streams are only available on replica sets and sharded clusters - when they are not
+ * available, {@link #isWatching()} returns {@code false} and caches fall back to expiring their
+ * entries after {@link CacheConfiguration#getTtl()}.</p>
+ */
+@Component
+public class ChangeStreamWatcher implements SmartLifecycle {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ChangeStreamWatcher.class);
+  private final CacheConfiguration configuration;
+  private final MongoTemplate mongo;
+  private final ApplicationEventPublisher events;
+  private volatile boolean running;
+  private volatile boolean watching;
+  private @Nullable Thread thread;
+
+  @Autowired
+  private ChangeStreamWatcher(
+    final CacheConfiguration configuration,
+    final MongoTemplate mongo,
+    final ApplicationEventPublisher events
+  ) {
+    this.configuration = configuration;
+    this.mongo = mongo;
+    this.events = events;
+  }
+
+  public boolean isWatching() {
+    return this.watching;
+  }
+
+  @Override
+  public void start() {
+    if (!this.configuration.isChangeStreams()) {
+      return;
+    }
+    this.running = true;
+    final Thread thread = new Thread(this::watch, "bibliothek-change-stream");
+    thread.setDaemon(true);
+    thread.start();
+    this.thread = thread;
+  }
+
+  @Override
+  public void stop() {
+    this.running = false;
+    final Thread thread = this.thread;
+    if (thread != null) {
+      thread.interrupt();
+      this.thread = null;
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return this.running;
+  }
+
+  private void watch() {
+    while (this.running) {
+      try (final MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = this.mongo.getDb().watch()
+        .fullDocument(FullDocument.UPDATE_LOOKUP)
+        .maxAwaitTime(1, TimeUnit.SECONDS)
+        .cursor()) {
+        this.watching = true;
+        // we can't know what happened while we were not watching
+        this.publish(CollectionChanged.everything());
+        while (this.running) {
+          final ChangeStreamDocument<Document> change = cursor.tryNext();
+          if (change != null) {
+            final MongoNamespace namespace = change.getNamespace();
+            this.publish(namespace != null
+              ? new CollectionChanged(namespace.getCollectionName(), change.getFullDocument())
+              : CollectionChanged.everything());
+          }
+        }
+      } catch (final MongoException e) {
+        if (!this.running) {
+          break;
+        }
+        LOGGER.warn("Change stream unavailable, falling back to cache expiry after {}", this.configuration.getTtl(), e);
+      } finally {
+        this.watching = false;
+      }
+      try {
+        Thread.sleep(this.configuration.getTtl().toMillis());
+      } catch (final InterruptedException e) {
+        break;
+      }
+    }
+  }
+
+  private void publish(final CollectionChanged event) {
+    // listeners that fail are logged and skipped by the multicaster - see EventConfiguration
+    this.events.publishEvent(event);
+  }
+}
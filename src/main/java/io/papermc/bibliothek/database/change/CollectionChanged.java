@@ -0,0 +1,51 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.database.change;
+
+import java.util.Collection;
+import org.bson.Document;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Published when a document in one of our collections has changed.
+ *
+ * <p>A {@code null} collection means that anything may have changed, for example
+ * after the change stream has been (re)opened and events might have been missed.</p>
+ */
+public record CollectionChanged(
+  @Nullable String collection,
+  @Nullable Document document
+) {
+  public static CollectionChanged everything() {
+    return new CollectionChanged(null, null);
+  }
+
+  public boolean affects(final String collection) {
+    return this.collection == null || this.collection.equals(collection);
+  }
+
+  public boolean affects(final Collection<String> collections) {
+    return this.collection == null || collections.contains(this.collection);
+  }
+}
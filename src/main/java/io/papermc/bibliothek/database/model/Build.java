@@ -89,5 +89,18 @@ public record Build(
     // NOTE: this pattern cannot contain any capturing groups
     @Language("RegExp")
     public static final String PATTERN = "[a-zA-Z0-9._-]+";
+
+    /**
+     * Gets the key a download of a type is stored under in {@link Build#downloads()}.
+     *
+     * <p>Keys cannot contain dots, so every dot in the type becomes a colon - the same as
+     * {@code cli/insertBuild.js} does.</p>
+     *
+     * @param type the type, which may contain dots
+     * @return the key
+     */
+    public static String key(final String type) {
+      return type.replace('.', ':');
+    }
   }
 }
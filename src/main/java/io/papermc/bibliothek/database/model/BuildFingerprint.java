@@ -0,0 +1,56 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.database.model;
+
+import java.time.Instant;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A cheap summary of a set of builds, which changes whenever a build is inserted or (un)promoted.
+ */
+public record BuildFingerprint(
+  int count,
+  int latest,
+  @Nullable Instant time,
+  int promoted,
+  long promotedNumbers
+) {
+  public static final BuildFingerprint EMPTY = new BuildFingerprint(0, 0, null, 0, 0);
+
+  /**
+   * Combines this fingerprint with the fingerprint of another, disjoint set of builds.
+   *
+   * @param that the other fingerprint
+   * @return the fingerprint of both sets of builds
+   */
+  public BuildFingerprint plus(final BuildFingerprint that) {
+    return new BuildFingerprint(
+      this.count + that.count,
+      Math.max(this.latest, that.latest),
+      this.time == null || that.time != null && that.time.isAfter(this.time) ? that.time : this.time,
+      this.promoted + that.promoted,
+      this.promotedNumbers + that.promotedNumbers
+    );
+  }
+}
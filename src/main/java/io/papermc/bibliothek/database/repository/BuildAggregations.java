@@ -0,0 +1,49 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.database.repository;
+
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.BuildFingerprint;
+import io.papermc.bibliothek.database.model.BuildLookup;
+import io.papermc.bibliothek.database.model.Version;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.bson.types.ObjectId;
+
+public interface BuildAggregations {
+  BuildFingerprint fingerprint(final ObjectId project, final Collection<ObjectId> versions);
+
+  List<Build> findPage(final ObjectId project, final ObjectId version, final BuildPage page);
+
+  Stream<Build> streamPage(final ObjectId project, final Collection<ObjectId> versions, final BuildPage page);
+
+  Optional<Build> findLatest(final ObjectId project, final ObjectId version, final Build.Channel channel, final boolean promoted);
+
+  Optional<BuildLookup> findByNames(final String project, final String version, final int number);
+
+  List<Build> findAllByNumbers(final Map<Version, ? extends Collection<Integer>> numbers);
+}
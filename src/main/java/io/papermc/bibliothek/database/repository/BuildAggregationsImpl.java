@@ -0,0 +1,192 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.database.repository;
+
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.BuildFingerprint;
+import io.papermc.bibliothek.database.model.BuildLookup;
+import io.papermc.bibliothek.database.model.Project;
+import io.papermc.bibliothek.database.model.Version;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+class BuildAggregationsImpl implements BuildAggregations {
+  private final MongoTemplate mongo;
+
+  @Autowired
+  BuildAggregationsImpl(final MongoTemplate mongo) {
+    this.mongo = mongo;
+  }
+
+  @Override
+  public BuildFingerprint fingerprint(final ObjectId project, final Collection<ObjectId> versions) {
+    final Criteria promoted = Criteria.where("promoted").is(true);
+    final Aggregation aggregation = Aggregation.newAggregation(
+      Aggregation.match(Criteria.where("project").is(project).and("version").in(versions)),
+      Aggregation.group()
+        .count().as("count")
+        .max("number").as("latest")
+        .max("time").as("time")
+        .sum(ConditionalOperators.when(promoted).then(1).otherwise(0)).as("promoted")
+        .sum(ConditionalOperators.when(promoted).thenValueOf("number").otherwise(0)).as("promotedNumbers")
+    );
+    return Objects.requireNonNullElse(
+      this.mongo.aggregate(aggregation, Build.class, BuildFingerprint.class).getUniqueMappedResult(),
+      BuildFingerprint.EMPTY
+    );
+  }
+
+  @Override
+  public List<Build> findPage(final ObjectId project, final ObjectId version, final BuildPage page) {
+    // project and version are fixed, so this is a scan over the {project, version, number} index
+    final Criteria criteria = Criteria.where("project").is(project).and("version").is(version);
+    final Integer after = page.after();
+    final Integer before = page.before();
+    if (after != null || before != null) {
+      final Criteria number = criteria.and("number");
+      if (after != null) {
+        number.gt(after);
+      }
+      if (before != null) {
+        number.lt(before);
+      }
+    }
+    return this.mongo.find(limit(Query.query(criteria).with(Sort.by(direction(page), "number")), page), Build.class);
+  }
+
+  @Override
+  public Stream<Build> streamPage(final ObjectId project, final Collection<ObjectId> versions, final BuildPage page) {
+    // build numbers are only unique within a version, so a family is ordered by insertion instead
+    final Criteria criteria = Criteria.where("project").is(project).and("version").in(versions);
+    return this.mongo.stream(limit(Query.query(criteria).with(Sort.by(direction(page), "_id")), page), Build.class);
+  }
+
+  @Override
+  public Optional<Build> findLatest(final ObjectId project, final ObjectId version, final Build.Channel channel, final boolean promoted) {
+    final Criteria criteria = Criteria.where("project").is(project).and("version").is(version);
+    // builds without a channel are in the default channel
+    if (channel == Build.Channel.DEFAULT) {
+      criteria.and("channel").ne(Build.Channel.EXPERIMENTAL);
+    } else {
+      criteria.and("channel").is(channel);
+    }
+    if (promoted) {
+      criteria.and("promoted").is(true);
+    }
+    // walks the {project, version, number} index from the newest build, and stops at the first match
+    return Optional.ofNullable(this.mongo.findOne(Query.query(criteria).with(Sort.by(Sort.Direction.DESC, "number")).limit(1), Build.class));
+  }
+
+  @Override
+  public List<Build> findAllByNumbers(final Map<Version, ? extends Collection<Integer>> numbers) {
+    if (numbers.isEmpty()) {
+      return List.of();
+    }
+    // one clause per version, each of them a seek on the {project, version, number} index
+    final Criteria[] clauses = numbers.entrySet().stream()
+      .map(entry -> Criteria.where("project").is(entry.getKey().project()).and("version").is(entry.getKey()._id()).and("number").in(entry.getValue()))
+      .toArray(Criteria[]::new);
+    return this.mongo.find(Query.query(new Criteria().orOperator(clauses)), Build.class);
+  }
+
+  @Override
+  public Optional<BuildLookup> findByNames(final String project, final String version, final int number) {
+    // projects -> versions -> builds, each $lookup is an equality match backed by an index:
+    // {name} on projects, {project, name} on versions and {project, version, number} on builds
+    final List<Document> pipeline = List.of(
+      new Document("$match", new Document("name", project)),
+      new Document("$limit", 1),
+      lookup(
+        this.mongo.getCollectionName(Version.class),
+        new Document("project", "$_id"),
+        and(eq("$project", "$$project"), eq("$name", version)),
+        "version"
+      ),
+      new Document("$unwind", new Document("path", "$version").append("preserveNullAndEmptyArrays", true)),
+      lookup(
+        this.mongo.getCollectionName(Build.class),
+        new Document("project", "$_id").append("version", "$version._id"),
+        and(eq("$project", "$$project"), eq("$version", "$$version"), eq("$number", number)),
+        "build"
+      ),
+      new Document("$unwind", new Document("path", "$build").append("preserveNullAndEmptyArrays", true))
+    );
+    final Document result = this.mongo.getCollection(this.mongo.getCollectionName(Project.class))
+      .aggregate(pipeline)
+      .first();
+    if (result == null) {
+      return Optional.empty();
+    }
+    return Optional.of(new BuildLookup(
+      this.mongo.getConverter().read(Project.class, result),
+      this.read(Version.class, result.get("version", Document.class)),
+      this.read(Build.class, result.get("build", Document.class))
+    ));
+  }
+
+  private <T> @Nullable T read(final Class<T> type, final @Nullable Document document) {
+    return document != null ? this.mongo.getConverter().read(type, document) : null;
+  }
+
+  private static Sort.Direction direction(final BuildPage page) {
+    return page.newestFirst() ? Sort.Direction.DESC : Sort.Direction.ASC;
+  }
+
+  private static Query limit(final Query query, final BuildPage page) {
+    final Integer limit = page.limit();
+    return limit != null ? query.limit(limit) : query;
+  }
+
+  private static Document lookup(final String from, final Document let, final Document match, final String as) {
+    return new Document("$lookup", new Document("from", from)
+      .append("let", let)
+      .append("pipeline", List.of(
+        new Document("$match", new Document("$expr", match)),
+        new Document("$limit", 1)
+      ))
+      .append("as", as));
+  }
+
+  private static Document and(final Document... expressions) {
+    return new Document("$and", List.of(expressions));
+  }
+
+  private static Document eq(final String field, final Object value) {
+    return new Document("$eq", List.of(field, value));
+  }
+}
@@ -24,18 +24,33 @@
 package io.papermc.bibliothek.database.repository;
 
 import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.BuildNumber;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface BuildCollection extends MongoRepository<Build, ObjectId> {
+public interface BuildCollection extends MongoRepository<Build, ObjectId>, BuildAggregations {
   List<Build> findAllByProjectAndVersion(final ObjectId project, final ObjectId version);
 
   List<Build> findAllByProjectAndVersionIn(final ObjectId project, final Collection<ObjectId> version);
 
+  Stream<Build> streamAllByProjectAndVersionIn(final ObjectId project, final Collection<ObjectId> version);
+
+  Optional<Build> findFirstByProjectAndVersionOrderByNumberDesc(final ObjectId project, final ObjectId version);
+
+  // covered by the {project, version, number} index - no documents are fetched
+  @Query(value = "{'project': ?0, 'version': ?1}", fields = "{'_id': 0, 'number': 1}", sort = "{'number': 1}")
+  List<BuildNumber> findNumbersByProjectAndVersion(final ObjectId project, final ObjectId version);
+
+  // only what is needed to find the files of every build
+  @Query(value = "{}", fields = "{'project': 1, 'version': 1, 'number': 1, 'downloads': 1}")
+  Stream<Build> streamAllDownloads();
+
   Optional<Build> findByProjectAndVersionAndNumber(final ObjectId project, final ObjectId version, final int number);
 }
@@ -0,0 +1,47 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.database.repository;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A window into the builds of a version.
+ *
+ * @param after only include builds with a number greater than this
+ * @param before only include builds with a number less than this
+ * @param limit the maximum number of builds to include
+ * @param newestFirst if builds should be ordered from newest to oldest
+ */
+public record BuildPage(
+  @Nullable Integer after,
+  @Nullable Integer before,
+  @Nullable Integer limit,
+  boolean newestFirst
+) {
+  public static final BuildPage ALL = new BuildPage(null, null, null, false);
+
+  public boolean isAll() {
+    return this.equals(ALL);
+  }
+}
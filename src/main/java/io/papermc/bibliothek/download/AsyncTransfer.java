@@ -0,0 +1,135 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.download;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copies parts of a file to the response using non-blocking servlet I/O.
+ *
+ * <p>The request thread is released as soon as the transfer starts - the container calls back
+ * whenever the client is ready to receive more, so a slow client only costs a buffer. Resident
+ * files are written straight from their buffer, without being copied through one first.</p>
+ */
+final class AsyncTransfer implements WriteListener {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncTransfer.class);
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private final AsyncContext context;
+  private final ServletOutputStream out;
+  private final WritableByteChannel channel;
+  private final DownloadWriter.Source source;
+  private final Iterator<DownloadWriter.Part> parts;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  private long position;
+  private long remaining;
+
+  private AsyncTransfer(final AsyncContext context, final ServletOutputStream out, final DownloadWriter.Source source, final List<DownloadWriter.Part> parts) {
+    this.context = context;
+    this.out = out;
+    this.channel = DownloadWriter.channel(out);
+    this.source = source;
+    this.parts = parts.iterator();
+  }
+
+  static void start(final HttpServletRequest request, final HttpServletResponse response, final DownloadWriter.Source source, final List<DownloadWriter.Part> parts) throws IOException {
+    final AsyncContext context = request.startAsync();
+    // stalled clients are taken care of by the connector's timeouts
+    context.setTimeout(0);
+    final ServletOutputStream out = response.getOutputStream();
+    out.setWriteListener(new AsyncTransfer(context, out, source, parts));
+  }
+
+  @Override
+  public void onWritePossible() throws IOException {
+    while (this.out.isReady()) {
+      if (!this.writeNext()) {
+        this.close();
+        this.context.complete();
+        return;
+      }
+    }
+  }
+
+  @Override
+  public void onError(final Throwable throwable) {
+    // most likely the client went away
+    LOGGER.debug("Download transfer failed", throwable);
+    this.close();
+    this.context.complete();
+  }
+
+  private boolean writeNext() throws IOException {
+    while (this.remaining == 0) {
+      if (!this.parts.hasNext()) {
+        return false;
+      }
+      final DownloadWriter.Part part = this.parts.next();
+      if (part instanceof final DownloadWriter.Bytes bytes) {
+        this.out.write(bytes.bytes());
+        return true;
+      } else if (part instanceof final DownloadWriter.Region region) {
+        this.position = region.start();
+        this.remaining = region.length();
+      }
+    }
+    final long count = Math.min(BUFFER_SIZE, this.remaining);
+    final int written;
+    if (this.source instanceof DownloadWriter.BufferSource) {
+      written = (int) this.source.transferTo(this.position, count, this.channel);
+    } else {
+      this.buffer.clear();
+      this.buffer.limit((int) count);
+      written = this.source.read(this.buffer, this.position);
+      if (written > 0) {
+        this.out.write(this.buffer.array(), 0, written);
+      }
+    }
+    if (written <= 0) {
+      throw new EOFException("File ended at " + this.position + " instead of " + (this.position + this.remaining));
+    }
+    this.position += written;
+    this.remaining -= written;
+    return true;
+  }
+
+  private void close() {
+    try {
+      this.source.close();
+    } catch (final IOException e) {
+      LOGGER.debug("Could not close download", e);
+    }
+  }
+}
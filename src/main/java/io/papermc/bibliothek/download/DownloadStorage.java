@@ -0,0 +1,217 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.download;
+
+import io.papermc.bibliothek.catalog.ResolvedBuild;
+import io.papermc.bibliothek.configuration.AppConfiguration;
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.exception.DownloadConflict;
+import io.papermc.bibliothek.exception.DownloadFailed;
+import io.papermc.bibliothek.exception.IngestRejected;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves where the files of a build are stored, according to {@link AppConfiguration#getStorageLayout()}.
+ */
+@Component
+public class DownloadStorage {
+  public static final String CONTENT_ADDRESSED_DIRECTORY = "sha256";
+  // not a valid project name, so it cannot collide with the tree layout
+  public static final String PATCH_DIRECTORY = "_patches";
+  private static final Pattern SHA256 = Pattern.compile("[a-f0-9]{64}");
+  private final AppConfiguration configuration;
+
+  @Autowired
+  private DownloadStorage(final AppConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * Checks if identical files are stored once, in which case a file that already exists does
+   * not need to be written again.
+   *
+   * @return {@code true} if identical files are stored once
+   */
+  public boolean deduplicates() {
+    return this.configuration.getStorageLayout() == StorageLayout.CONTENT_ADDRESSED;
+  }
+
+  public Path path(final ResolvedBuild resolved, final Build.Download download) {
+    return this.path(resolved.project().name(), resolved.version().name(), resolved.build().number(), download);
+  }
+
+  public Path path(final String project, final String version, final int build, final Build.Download download) {
+    final Path root = this.configuration.getStoragePath();
+    return switch (this.configuration.getStorageLayout()) {
+      case TREE -> tree(root, project, version, build, download.name());
+      case CONTENT_ADDRESSED -> contentAddressed(root, download.sha256());
+    };
+  }
+
+  /**
+   * Resolves where the patch from one file to another is stored.
+   *
+   * <p>Patches are keyed by the hashes of both files, in either layout, so a patch is shared
+   * by every pair of builds with the same files.</p>
+   *
+   * @param source the download the patch applies to
+   * @param target the download the patch produces
+   * @return the path of the patch
+   */
+  public Path patch(final Build.Download source, final Build.Download target) {
+    final String from = checked(source.sha256());
+    final String to = checked(target.sha256());
+    return this.configuration.getStoragePath().resolve(PATCH_DIRECTORY).resolve(from.substring(0, 2)).resolve(from).resolve(to + ".bsdiff");
+  }
+
+  /**
+   * Hashes a stored file.
+   *
+   * @param path the file
+   * @return the hash of its contents
+   * @throws IOException if an I/O error occurs
+   */
+  public static String hash(final Path path) throws IOException {
+    final MessageDigest digest = sha256();
+    try (final InputStream in = new DigestInputStream(Files.newInputStream(path), digest)) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * Stores a file, hashing it as it is written.
+   *
+   * <p>The file is written next to its target and only linked into place once it is complete
+   * and its hash matches, so a download never sees a partial file.</p>
+   *
+   * <p>Stored files are never replaced - storing a file where an identical one already exists
+   * does nothing, storing a different one is a conflict.</p>
+   *
+   * @param in the contents of the file
+   * @param target where to store the file
+   * @param sha256 the expected hash, or {@code null} to accept any
+   * @return the hash of the contents
+   * @throws IOException if an I/O error occurs
+   * @throws IngestRejected if the hash does not match
+   * @throws DownloadConflict if a different file is already stored at the target
+   */
+  public String store(final InputStream in, final Path target, final @Nullable String sha256) throws IOException {
+    return store(in, target.getParent(), actual -> target, sha256);
+  }
+
+  /**
+   * Stores a download of a build, hashing it as it is written.
+   *
+   * <p>In the content-addressed layout, the target is only known once the whole file has been
+   * hashed, so it is written to the content-addressed directory first.</p>
+   *
+   * @param in the contents of the file
+   * @param project the project name
+   * @param version the version name
+   * @param build the build number
+   * @param name the download name
+   * @param sha256 the expected hash, or {@code null} to accept any
+   * @return the hash of the contents
+   * @throws IOException if an I/O error occurs
+   * @throws IngestRejected if the hash does not match
+   * @throws DownloadConflict if a different file is already stored for the download
+   */
+  public String store(final InputStream in, final String project, final String version, final int build, final String name, final @Nullable String sha256) throws IOException {
+    final Path root = this.configuration.getStoragePath();
+    final Path directory = switch (this.configuration.getStorageLayout()) {
+      case TREE -> tree(root, project, version, build, name).getParent();
+      case CONTENT_ADDRESSED -> root.resolve(CONTENT_ADDRESSED_DIRECTORY);
+    };
+    return store(in, directory, actual -> this.path(project, version, build, new Build.Download(name, actual)), sha256);
+  }
+
+  private static String store(final InputStream in, final Path directory, final Function<String, Path> target, final @Nullable String sha256) throws IOException {
+    Files.createDirectories(directory);
+    final Path temporary = Files.createTempFile(directory, "upload-", ".tmp");
+    try {
+      final MessageDigest digest = sha256();
+      try (final OutputStream out = new DigestOutputStream(Files.newOutputStream(temporary), digest)) {
+        in.transferTo(out);
+      }
+      final String actual = HexFormat.of().formatHex(digest.digest());
+      if (sha256 != null && !sha256.equals(actual)) {
+        throw new IngestRejected("Expected sha256 " + sha256 + ", but was " + actual);
+      }
+      final Path resolved = target.apply(actual);
+      Files.createDirectories(resolved.getParent());
+      try {
+        // unlike a move, a link fails instead of replacing the target
+        Files.createLink(resolved, temporary);
+      } catch (final FileAlreadyExistsException e) {
+        if (!actual.equals(hash(resolved))) {
+          throw new DownloadConflict(resolved.getFileName() + " is already stored with a different sha256", e);
+        }
+      }
+      return actual;
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  public static Path tree(final Path root, final String project, final String version, final int build, final String name) {
+    return root.resolve(project).resolve(version).resolve(String.valueOf(build)).resolve(name);
+  }
+
+  public static Path contentAddressed(final Path root, final String sha256) {
+    final String hash = checked(sha256);
+    return root.resolve(CONTENT_ADDRESSED_DIRECTORY).resolve(hash.substring(0, 2)).resolve(hash);
+  }
+
+  // the hash becomes part of the path, so it must not be able to escape the storage path
+  private static String checked(final String sha256) {
+    if (!SHA256.matcher(sha256).matches()) {
+      throw new DownloadFailed(new IllegalArgumentException("Not a sha256 hash: " + sha256));
+    }
+    return sha256;
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
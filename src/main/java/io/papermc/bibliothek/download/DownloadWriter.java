@@ -0,0 +1,390 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.download;
+
+import io.papermc.bibliothek.configuration.AppConfiguration;
+import io.papermc.bibliothek.exception.DownloadFailed;
+import io.papermc.bibliothek.util.HTTP;
+import io.papermc.bibliothek.util.MediaTypes;
+import io.papermc.bibliothek.util.Validators;
+import io.papermc.bibliothek.warmup.WarmUp;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Writes files to the response, honoring {@code Range} and {@code If-Range}.
+ *
+ * <p>Whenever the connector supports it, the file is handed to Tomcat's sendfile support so that
+ * the bytes go from the page cache to the socket without passing through the JVM. Otherwise, the
+ * file is streamed with non-blocking servlet I/O, so that slow clients do not hold on to a request
+ * thread, falling back to {@link FileChannel#transferTo(long, long, WritableByteChannel)}.</p>
+ *
+ * <p>Sendfile already goes from the page cache to the socket - when it is not available, popular
+ * files are served from {@link HotArtifacts} instead of the file system. Behind a connector that
+ * supports sendfile the cache is never consulted.</p>
+ */
+@Component
+public class DownloadWriter {
+  private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+  private static final String CRLF = "\r\n";
+  private final AppConfiguration configuration;
+  private final HotArtifacts artifacts;
+
+  @Autowired
+  DownloadWriter(final AppConfiguration configuration, final HotArtifacts artifacts) {
+    this.configuration = configuration;
+    this.artifacts = artifacts;
+  }
+
+  /**
+   * Writes a file to the response.
+   *
+   * @param request the request
+   * @param response the response
+   * @param path the file
+   * @param name the name the client should save the file as
+   * @param validators the validators of the file
+   * @param cache the cache control of the response
+   * @return the number of body bytes sent, or being sent asynchronously
+   * @throws IOException if an I/O error occurs
+   */
+  public long write(
+    final HttpServletRequest request,
+    final HttpServletResponse response,
+    final Path path,
+    final String name,
+    final Validators validators,
+    final CacheControl cache
+  ) throws IOException {
+    final boolean sendfile = Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED));
+    // warming up must not make files look popular
+    final HotArtifacts.@Nullable Lease hot = sendfile || WarmUp.isWarmUp(request) ? null : this.artifacts.get(path);
+    final Source source;
+    if (hot != null) {
+      source = new BufferSource(hot);
+    } else {
+      try {
+        source = new FileSource(FileChannel.open(path, StandardOpenOption.READ));
+      } catch (final IOException e) {
+        throw new DownloadFailed(e);
+      }
+    }
+    boolean async = false;
+    try {
+      final long length = source.size();
+      final MediaType type = Objects.requireNonNullElse(MediaTypes.fromFileName(name), MediaType.APPLICATION_OCTET_STREAM);
+      response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+      response.setHeader(HttpHeaders.CACHE_CONTROL, cache.getHeaderValue());
+      response.setHeader(HttpHeaders.CONTENT_DISPOSITION, HTTP.attachmentDisposition(Path.of(name)).toString());
+      response.setHeader(HttpHeaders.ETAG, validators.etag());
+      final Instant lastModified = validators.lastModified();
+      if (lastModified != null) {
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified.toEpochMilli());
+      }
+
+      final List<Region> regions;
+      try {
+        regions = regions(request, validators, length);
+      } catch (final IllegalArgumentException e) {
+        response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+        return 0;
+      }
+
+      final List<Part> parts;
+      final long contentLength;
+      if (regions.isEmpty()) {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(type.toString());
+        response.setContentLengthLong(length);
+        parts = List.of(new Region(0, length));
+        contentLength = length;
+      } else if (regions.size() == 1) {
+        final Region region = regions.get(0);
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setContentType(type.toString());
+        response.setContentLengthLong(region.length());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, region.contentRange(length));
+        parts = List.of(region);
+        contentLength = region.length();
+      } else {
+        final String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        parts = new ArrayList<>(regions.size() * 2 + 1);
+        long multipartLength = 0;
+        for (final Region region : regions) {
+          final byte[] header = (CRLF + "--" + boundary + CRLF
+            + HttpHeaders.CONTENT_TYPE + ": " + type + CRLF
+            + HttpHeaders.CONTENT_RANGE + ": " + region.contentRange(length) + CRLF
+            + CRLF).getBytes(StandardCharsets.US_ASCII);
+          parts.add(new Bytes(header));
+          parts.add(region);
+          multipartLength += header.length + region.length();
+        }
+        final byte[] trailer = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        parts.add(new Bytes(trailer));
+        multipartLength += trailer.length;
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(multipartLength);
+        contentLength = multipartLength;
+      }
+      if (HttpMethod.HEAD.matches(request.getMethod())) {
+        return 0;
+      }
+      async = transfer(request, response, source, path, parts, this.configuration.isAsyncDownloads());
+      return contentLength;
+    } finally {
+      if (!async) {
+        source.close();
+      }
+    }
+  }
+
+  // an empty list means the whole file, an IllegalArgumentException that the ranges cannot be satisfied
+  private static List<Region> regions(final HttpServletRequest request, final Validators validators, final long length) {
+    final String range = request.getHeader(HttpHeaders.RANGE);
+    if (range == null || !matchesIfRange(request, validators)) {
+      return List.of();
+    }
+    final List<HttpRange> httpRanges;
+    try {
+      httpRanges = HttpRange.parseRanges(range);
+    } catch (final IllegalArgumentException e) {
+      // a Range we do not understand is ignored, see RFC 9110 section 14.2
+      return List.of();
+    }
+    final List<Region> regions = new ArrayList<>();
+    long total = 0;
+    for (final HttpRange httpRange : httpRanges) {
+      final long start = httpRange.getRangeStart(length);
+      if (start >= length) {
+        // also covers bytes=-0, which asks for nothing
+        throw new IllegalArgumentException("Range starts at " + start + ", past the end of the file");
+      }
+      final Region region = new Region(start, httpRange.getRangeEnd(length) - start + 1);
+      total += region.length();
+      regions.add(region);
+    }
+    if (total > length) {
+      // overlapping ranges could make us send the same bytes over and over
+      throw new IllegalArgumentException("The sum of all ranges exceeds the file size");
+    }
+    return regions;
+  }
+
+  private static boolean matchesIfRange(final HttpServletRequest request, final Validators validators) {
+    final String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+    if (ifRange == null) {
+      return true;
+    }
+    if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+      // weak tags never match, If-Range requires a strong comparison
+      return ifRange.equals(validators.etag());
+    }
+    final @Nullable Instant lastModified = validators.lastModified();
+    try {
+      return lastModified != null && request.getDateHeader(HttpHeaders.IF_RANGE) == lastModified.toEpochMilli() / 1000 * 1000;
+    } catch (final IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  // returns true if the transfer continues asynchronously, and now owns the source
+  private static boolean transfer(
+    final HttpServletRequest request,
+    final HttpServletResponse response,
+    final Source source,
+    final Path path,
+    final List<Part> parts,
+    final boolean async
+  ) throws IOException {
+    if (parts.size() == 1 && parts.get(0) instanceof final Region region && source instanceof FileSource && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+      request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+      request.setAttribute(SENDFILE_START, region.start());
+      request.setAttribute(SENDFILE_END, region.start() + region.length());
+      return false;
+    }
+    if (async && request.isAsyncSupported()) {
+      AsyncTransfer.start(request, response, source, parts);
+      return true;
+    }
+    final WritableByteChannel out = channel(response.getOutputStream());
+    for (final Part part : parts) {
+      if (part instanceof final Bytes bytes) {
+        response.getOutputStream().write(bytes.bytes());
+      } else if (part instanceof final Region region) {
+        copy(source, out, region);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets a channel writing to a servlet output stream.
+   *
+   * <p>Tomcat's output stream takes buffers as they are, so that resident files are not copied
+   * onto the heap on their way out.</p>
+   *
+   * @param out the output stream
+   * @return the channel
+   */
+  static WritableByteChannel channel(final ServletOutputStream out) {
+    if (out instanceof final CoyoteOutputStream coyote) {
+      return new WritableByteChannel() {
+        @Override
+        public int write(final ByteBuffer source) throws IOException {
+          final int written = source.remaining();
+          coyote.write(source);
+          source.position(source.limit());
+          return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+          return true;
+        }
+
+        @Override
+        public void close() {
+          // the container closes the response
+        }
+      };
+    }
+    return Channels.newChannel(out);
+  }
+
+  private static void copy(final Source source, final WritableByteChannel out, final Region region) throws IOException {
+    long position = region.start();
+    final long end = region.start() + region.length();
+    while (position < end) {
+      final long transferred = source.transferTo(position, end - position, out);
+      if (transferred <= 0) {
+        throw new EOFException("File ended at " + position + " instead of " + end);
+      }
+      position += transferred;
+    }
+  }
+
+  sealed interface Source extends Closeable permits FileSource, BufferSource {
+    long size() throws IOException;
+
+    int read(ByteBuffer destination, long position) throws IOException;
+
+    long transferTo(long position, long count, WritableByteChannel target) throws IOException;
+  }
+
+  record FileSource(FileChannel channel) implements Source {
+    @Override
+    public long size() throws IOException {
+      return this.channel.size();
+    }
+
+    @Override
+    public int read(final ByteBuffer destination, final long position) throws IOException {
+      return this.channel.read(destination, position);
+    }
+
+    @Override
+    public long transferTo(final long position, final long count, final WritableByteChannel target) throws IOException {
+      return this.channel.transferTo(position, count, target);
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.channel.close();
+    }
+  }
+
+  record BufferSource(HotArtifacts.Lease lease) implements Source {
+    @Override
+    public long size() {
+      return this.lease.contents().capacity();
+    }
+
+    @Override
+    public int read(final ByteBuffer destination, final long position) {
+      final int count = (int) Math.min(destination.remaining(), this.size() - position);
+      if (count <= 0) {
+        return -1;
+      }
+      destination.put(this.lease.contents().slice((int) position, count));
+      return count;
+    }
+
+    @Override
+    public long transferTo(final long position, final long count, final WritableByteChannel target) throws IOException {
+      final int length = (int) Math.min(count, this.size() - position);
+      if (length <= 0) {
+        return 0;
+      }
+      return target.write(this.lease.contents().slice((int) position, length));
+    }
+
+    @Override
+    public void close() {
+      this.lease.close();
+    }
+  }
+
+  sealed interface Part permits Bytes, Region {
+  }
+
+  record Bytes(byte[] bytes) implements Part {
+  }
+
+  record Region(long start, long length) implements Part {
+    String contentRange(final long total) {
+      return "bytes " + this.start + "-" + (this.start + this.length - 1) + "/" + total;
+    }
+  }
+}
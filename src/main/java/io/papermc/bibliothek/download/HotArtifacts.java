@@ -0,0 +1,316 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.download;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.papermc.bibliothek.configuration.CacheConfiguration;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the most requested files in direct buffers, outside the heap.
+ *
+ * <p>Every request counts towards the popularity of its file. Popularity is halved every
+ * {@link #AGING_INTERVAL} requests, so that last month's builds make room for the new ones. A
+ * file is only loaded when it is more popular than every file that has to be evicted to make room
+ * for it, and loading happens in the background so no request waits for it.</p>
+ *
+ * <p>Files are expected to never change once they are stored.</p>
+ *
+ * <p>Every request being served holds a {@link Lease} on the contents it is sending. An evicted
+ * file is freed as soon as its last lease is closed rather than whenever the garbage collector
+ * gets to it, and counts towards the budget until then, so that the memory used never exceeds
+ * {@code app.cache.artifact-bytes}.</p>
+ *
+ * <p>The cache is only consulted when the connector cannot use sendfile, which is on by default
+ * in Tomcat - it is disabled by default, and only worth enabling where sendfile is turned off or
+ * not supported.</p>
+ */
+@Component
+public class HotArtifacts implements DisposableBean {
+  private static final Logger LOGGER = LoggerFactory.getLogger(HotArtifacts.class);
+  private static final int AGING_INTERVAL = 100_000;
+  // one request is not a pattern
+  private static final long MINIMUM_POPULARITY = 2;
+  private static final @Nullable MethodHandle INVOKE_CLEANER = invokeCleaner();
+  private final long budget;
+  private final Map<Path, AtomicLong> popularity = new ConcurrentHashMap<>();
+  private final Map<Path, Resident> resident = new ConcurrentHashMap<>();
+  private final Set<Path> loading = ConcurrentHashMap.newKeySet();
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong bytes = new AtomicLong();
+  private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "bibliothek-hot-artifacts");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter evictions;
+
+  @Autowired
+  HotArtifacts(final CacheConfiguration configuration, final MeterRegistry metrics) {
+    this.budget = configuration.getArtifactBytes().toBytes();
+    this.hits = Counter.builder("cache.gets").tag("cache", "artifacts").tag("result", "hit").register(metrics);
+    this.misses = Counter.builder("cache.gets").tag("cache", "artifacts").tag("result", "miss").register(metrics);
+    this.evictions = Counter.builder("cache.evictions").tag("cache", "artifacts").register(metrics);
+    Gauge.builder("cache.size", this.resident, Map::size).tag("cache", "artifacts").register(metrics);
+    Gauge.builder("bibliothek.cache.bytes", this.bytes, AtomicLong::get).tag("cache", "artifacts").baseUnit("bytes").register(metrics);
+  }
+
+  public boolean enabled() {
+    return this.budget > 0;
+  }
+
+  /**
+   * Gets the contents of a file if it is resident, and counts the request towards its popularity.
+   *
+   * <p>The lease must be closed once the contents are no longer used.</p>
+   *
+   * @param path the file
+   * @return a lease on the contents, or {@code null} if the file is not resident
+   */
+  public @Nullable Lease get(final Path path) {
+    if (!this.enabled()) {
+      return null;
+    }
+    final long popularity = this.popularity.computeIfAbsent(path, key -> new AtomicLong()).incrementAndGet();
+    if (this.requests.incrementAndGet() % AGING_INTERVAL == 0) {
+      this.loader.execute(this::age);
+    }
+    final Resident contents = this.resident.get(path);
+    final @Nullable Lease lease = contents != null ? contents.lease() : null;
+    if (lease != null) {
+      this.hits.increment();
+      return lease;
+    }
+    this.misses.increment();
+    if (popularity >= MINIMUM_POPULARITY && this.loading.add(path)) {
+      this.loader.execute(() -> {
+        try {
+          this.admit(path);
+        } finally {
+          this.loading.remove(path);
+        }
+      });
+    }
+    return null;
+  }
+
+  @Override
+  public void destroy() {
+    this.loader.shutdownNow();
+  }
+
+  // only ever called on the loader thread
+  private void admit(final Path path) {
+    if (this.resident.containsKey(path)) {
+      return;
+    }
+    try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size > this.budget || size > Integer.MAX_VALUE) {
+        return;
+      }
+      final List<Path> victims = this.victims(path, size);
+      if (victims == null) {
+        return;
+      }
+      for (final Path victim : victims) {
+        final Resident evicted = this.resident.remove(victim);
+        if (evicted != null) {
+          evicted.release();
+          this.evictions.increment();
+        }
+      }
+      if (this.budget - this.bytes.get() < size) {
+        // evicted files still being sent are not freed yet, try again on a later request
+        return;
+      }
+      final ByteBuffer contents = ByteBuffer.allocateDirect((int) size);
+      this.bytes.addAndGet(size);
+      try {
+        while (contents.hasRemaining()) {
+          if (channel.read(contents, contents.position()) < 0) {
+            throw new EOFException("File ended at " + contents.position() + " instead of " + size);
+          }
+        }
+      } catch (final IOException e) {
+        this.free(contents);
+        throw e;
+      }
+      this.resident.put(path, new Resident(contents.flip()));
+    } catch (final IOException e) {
+      // the request for it will fail, or has failed, on its own
+      LOGGER.debug("Could not load {}", path, e);
+    }
+  }
+
+  // the least popular files to evict to make room, or null if the file is not worth it
+  private @Nullable List<Path> victims(final Path path, final long size) {
+    final long popularity = this.popularity(path);
+    final List<Path> victims = new ArrayList<>();
+    long free = this.budget - this.bytes.get();
+    if (free >= size) {
+      return victims;
+    }
+    final List<Path> candidates = this.resident.keySet().stream()
+      .sorted(Comparator.comparingLong(this::popularity))
+      .toList();
+    for (final Path candidate : candidates) {
+      if (this.popularity(candidate) >= popularity) {
+        return null;
+      }
+      victims.add(candidate);
+      free += this.resident.get(candidate).buffer.capacity();
+      if (free >= size) {
+        return victims;
+      }
+    }
+    return null;
+  }
+
+  private long popularity(final Path path) {
+    final AtomicLong popularity = this.popularity.get(path);
+    return popularity != null ? popularity.get() : 0;
+  }
+
+  private void free(final ByteBuffer buffer) {
+    this.bytes.addAndGet(-buffer.capacity());
+    if (INVOKE_CLEANER != null) {
+      try {
+        INVOKE_CLEANER.invokeExact(buffer);
+      } catch (final Throwable e) {
+        LOGGER.debug("Could not free a buffer, leaving it to the garbage collector", e);
+      }
+    }
+  }
+
+  private static @Nullable MethodHandle invokeCleaner() {
+    try {
+      final Class<?> type = Class.forName("sun.misc.Unsafe");
+      final Field field = type.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      return MethodHandles.lookup()
+        .findVirtual(type, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+        .bindTo(field.get(null));
+    } catch (final ReflectiveOperationException | RuntimeException e) {
+      LOGGER.warn("Direct buffers cannot be freed explicitly, evicted files stay in memory until they are garbage collected", e);
+      return null;
+    }
+  }
+
+  private void age() {
+    this.popularity.entrySet().removeIf(entry -> {
+      final long halved = entry.getValue().updateAndGet(value -> value / 2);
+      return halved == 0 && !this.resident.containsKey(entry.getKey());
+    });
+  }
+
+  // the cache holds one reference, and every lease holds another
+  private final class Resident {
+    private final ByteBuffer buffer;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private Resident(final ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    private @Nullable Lease lease() {
+      int references;
+      do {
+        references = this.references.get();
+        if (references == 0) {
+          // freed while we were looking it up
+          return null;
+        }
+      } while (!this.references.compareAndSet(references, references + 1));
+      return new Lease(this);
+    }
+
+    private void release() {
+      if (this.references.decrementAndGet() == 0) {
+        HotArtifacts.this.free(this.buffer);
+      }
+    }
+  }
+
+  /**
+   * The contents of a resident file, which stay in memory until the lease is closed.
+   */
+  public static final class Lease implements Closeable {
+    private final Resident resident;
+    private final ByteBuffer contents;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private Lease(final Resident resident) {
+      this.resident = resident;
+      this.contents = resident.buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets a read-only view of the contents.
+     *
+     * @return the contents
+     */
+    public ByteBuffer contents() {
+      return this.contents;
+    }
+
+    @Override
+    public void close() {
+      if (this.closed.compareAndSet(false, true)) {
+        this.resident.release();
+      }
+    }
+  }
+}
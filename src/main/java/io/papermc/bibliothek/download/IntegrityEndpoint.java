@@ -0,0 +1,65 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.download;
+
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the {@link IntegrityScanner} as the {@code storage} actuator endpoint - reading it
+ * returns the last report, writing to it starts a scan.
+ *
+ * <p>Like every other endpoint but {@code health}, it must be exposed explicitly.</p>
+ */
+@Component
+@Endpoint(id = "storage")
+public class IntegrityEndpoint {
+  private final IntegrityScanner scanner;
+
+  @Autowired
+  private IntegrityEndpoint(final IntegrityScanner scanner) {
+    this.scanner = scanner;
+  }
+
+  @ReadOperation
+  public Status status() {
+    return new Status(this.scanner.isScanning(), this.scanner.report());
+  }
+
+  @WriteOperation
+  public Status scan() {
+    this.scanner.scan();
+    return this.status();
+  }
+
+  public record Status(
+    boolean scanning,
+    @Nullable IntegrityReport report
+  ) {
+  }
+}
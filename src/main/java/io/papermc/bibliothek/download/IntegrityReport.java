@@ -0,0 +1,62 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.download;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The results of a storage integrity scan.
+ *
+ * <p>Only the first {@link IntegrityScanner#EXAMPLES} paths of each kind of problem are listed,
+ * relative to the storage path.</p>
+ *
+ * @param started when the scan started
+ * @param finished when the scan finished
+ * @param verified the number of files whose hash matched
+ * @param bytes the number of bytes hashed
+ * @param missing the number of files referenced by a build that do not exist
+ * @param mismatched the number of files whose hash does not match their build
+ * @param orphaned the number of files that no build references
+ * @param unreadable the number of files that exist but could not be read
+ * @param missingFiles files referenced by a build that do not exist
+ * @param mismatchedFiles files whose hash does not match their build
+ * @param orphanedFiles files that no build references
+ * @param unreadableFiles files that exist but could not be read
+ */
+public record IntegrityReport(
+  Instant started,
+  Instant finished,
+  long verified,
+  long bytes,
+  long missing,
+  long mismatched,
+  long orphaned,
+  long unreadable,
+  List<String> missingFiles,
+  List<String> mismatchedFiles,
+  List<String> orphanedFiles,
+  List<String> unreadableFiles
+) {
+}
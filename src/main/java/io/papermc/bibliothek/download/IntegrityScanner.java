@@ -0,0 +1,432 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.download;
+
+import com.sun.nio.file.ExtendedOpenOption;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.papermc.bibliothek.catalog.Catalog;
+import io.papermc.bibliothek.catalog.ResolvedBuild;
+import io.papermc.bibliothek.configuration.AppConfiguration;
+import io.papermc.bibliothek.configuration.ScanConfiguration;
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.Project;
+import io.papermc.bibliothek.database.model.Version;
+import io.papermc.bibliothek.database.repository.BuildCollection;
+import io.papermc.bibliothek.exception.DownloadFailed;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks that every file referenced by a build exists and matches its hash, and finds files that
+ * no build references.
+ *
+ * <p>Files are hashed by {@link ScanConfiguration#getParallelism()} threads, at no more than
+ * {@link ScanConfiguration#getBytesPerSecond()} combined. Where the file system supports it, files
+ * are read with {@code O_DIRECT}, so that a scan does not evict the files we are serving from
+ * the page cache.</p>
+ *
+ * <p>The storage is walked for orphans while the files are being hashed. Files that are still being
+ * written, or that appeared after the scan started, are not orphans.</p>
+ */
+@Component
+public class IntegrityScanner implements SmartLifecycle {
+  static final int EXAMPLES = 100;
+  private static final Logger LOGGER = LoggerFactory.getLogger(IntegrityScanner.class);
+  private static final int BUFFER_SIZE = 1024 * 1024;
+  private static final String TEMPORARY_SUFFIX = ".tmp";
+  private final ScanConfiguration configuration;
+  private final AppConfiguration app;
+  private final Catalog catalog;
+  private final BuildCollection builds;
+  private final DownloadStorage storage;
+  private final AtomicBoolean scanning = new AtomicBoolean();
+  private volatile @Nullable IntegrityReport report;
+  private @Nullable ScheduledExecutorService scheduler;
+
+  @Autowired
+  private IntegrityScanner(
+    final ScanConfiguration configuration,
+    final AppConfiguration app,
+    final Catalog catalog,
+    final BuildCollection builds,
+    final DownloadStorage storage,
+    final MeterRegistry metrics
+  ) {
+    this.configuration = configuration;
+    this.app = app;
+    this.catalog = catalog;
+    this.builds = builds;
+    this.storage = storage;
+    this.gauge(metrics, "missing", IntegrityReport::missing);
+    this.gauge(metrics, "mismatched", IntegrityReport::mismatched);
+    this.gauge(metrics, "orphaned", IntegrityReport::orphaned);
+    this.gauge(metrics, "unreadable", IntegrityReport::unreadable);
+  }
+
+  public boolean isScanning() {
+    return this.scanning.get();
+  }
+
+  public @Nullable IntegrityReport report() {
+    return this.report;
+  }
+
+  /**
+   * Starts a scan in the background, unless one is already running.
+   *
+   * @return {@code true} if a scan was started
+   */
+  public boolean scan() {
+    final ScheduledExecutorService scheduler = this.scheduler;
+    if (scheduler == null || !this.scanning.compareAndSet(false, true)) {
+      return false;
+    }
+    scheduler.execute(this::run);
+    return true;
+  }
+
+  @Override
+  public void start() {
+    final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "bibliothek-integrity-scan");
+      thread.setDaemon(true);
+      return thread;
+    });
+    final Duration interval = this.configuration.getInterval();
+    if (interval != null && interval.isPositive()) {
+      scheduler.scheduleWithFixedDelay(() -> {
+        if (this.scanning.compareAndSet(false, true)) {
+          this.run();
+        }
+      }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    this.scheduler = scheduler;
+  }
+
+  @Override
+  public void stop() {
+    final ScheduledExecutorService scheduler = this.scheduler;
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      this.scheduler = null;
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return this.scheduler != null;
+  }
+
+  private void run() {
+    try {
+      final IntegrityReport report = this.scanNow();
+      this.report = report;
+      LOGGER.info("Storage scan verified {} files, found {} missing, {} mismatched, {} unreadable and {} orphaned", report.verified(), report.missing(), report.mismatched(), report.unreadable(), report.orphaned());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (final RuntimeException | IOException e) {
+      LOGGER.warn("Storage scan failed", e);
+    } finally {
+      this.scanning.set(false);
+    }
+  }
+
+  private IntegrityReport scanNow() throws IOException, InterruptedException {
+    final Instant started = Instant.now();
+    final Path root = this.app.getStoragePath().toAbsolutePath().normalize();
+    final Throttle throttle = new Throttle(this.configuration.getBytesPerSecond().toBytes());
+    final Findings findings = new Findings(root);
+    final Set<Path> expected = ConcurrentHashMap.newKeySet();
+    final ExecutorService walker = Executors.newSingleThreadExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "bibliothek-integrity-walk");
+      thread.setDaemon(true);
+      return thread;
+    });
+    final Future<List<Path>> stored;
+    try {
+      stored = walker.submit(() -> this.storedFiles(root, started));
+    } finally {
+      walker.shutdown();
+    }
+    final int parallelism = this.configuration.getParallelism();
+    final AtomicInteger threads = new AtomicInteger();
+    final ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+      final Thread thread = new Thread(runnable, "bibliothek-integrity-scan-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    // do not queue up the whole database
+    final Semaphore pending = new Semaphore(parallelism * 4);
+    try (final Stream<Build> builds = this.builds.streamAllDownloads()) {
+      for (final Build build : (Iterable<Build>) builds::iterator) {
+        final Optional<Project> project = this.catalog.project(build.project());
+        final Optional<Version> version = this.catalog.version(build.version());
+        if (project.isEmpty() || version.isEmpty()) {
+          continue;
+        }
+        final ResolvedBuild resolved = new ResolvedBuild(project.get(), version.get(), build);
+        for (final Build.Download download : build.downloads().values()) {
+          final Path path;
+          try {
+            path = this.storage.path(resolved, download).toAbsolutePath().normalize();
+          } catch (final DownloadFailed e) {
+            findings.mismatched(root.resolve(project.get().name()).resolve(version.get().name()).resolve(String.valueOf(build.number())).resolve(download.name()));
+            continue;
+          }
+          if (!expected.add(path)) {
+            // identical files are stored once in the content-addressed layout
+            continue;
+          }
+          pending.acquire();
+          workers.execute(() -> {
+            try {
+              this.verify(path, download.sha256(), throttle, findings);
+            } finally {
+              pending.release();
+            }
+          });
+        }
+      }
+    } finally {
+      workers.shutdown();
+      if (!workers.awaitTermination(1, TimeUnit.DAYS)) {
+        workers.shutdownNow();
+      }
+    }
+    try {
+      for (final Path path : stored.get()) {
+        if (!expected.contains(path)) {
+          findings.orphaned(path);
+        }
+      }
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof final IOException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      stored.cancel(true);
+    }
+    return findings.report(started);
+  }
+
+  private void verify(final Path path, final String sha256, final Throttle throttle, final Findings findings) {
+    if (!Files.isRegularFile(path)) {
+      findings.missing(path);
+      return;
+    }
+    try {
+      if (hash(path, throttle, findings).equals(sha256)) {
+        findings.verified.increment();
+      } else {
+        findings.mismatched(path);
+      }
+    } catch (final IOException e) {
+      // the file is there, which says nothing about whether it is intact
+      LOGGER.debug("Could not hash {}", path, e);
+      findings.unreadable(path);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // the files that may be orphans, depending on what the builds reference
+  private List<Path> storedFiles(final Path root, final Instant started) throws IOException {
+    final Path contentAddressed = root.resolve(DownloadStorage.CONTENT_ADDRESSED_DIRECTORY);
+    final Path patches = root.resolve(DownloadStorage.PATCH_DIRECTORY);
+    final Path walked = this.app.getStorageLayout() == StorageLayout.CONTENT_ADDRESSED ? contentAddressed : root;
+    if (!Files.isDirectory(walked)) {
+      return List.of();
+    }
+    try (final Stream<Path> files = Files.find(walked, Integer.MAX_VALUE, (path, attributes) -> attributes.isRegularFile()
+      // written after we started looking at the builds, its build may not have been inserted yet
+      && attributes.lastModifiedTime().toInstant().isBefore(started))) {
+      return files
+        // the other layout is not ours to judge, it may be in the middle of a migration
+        .filter(path -> walked.equals(contentAddressed) || !path.startsWith(contentAddressed))
+        // patches are derived from the downloads, and regenerated when missing
+        .filter(path -> !path.startsWith(patches))
+        // uploads and ingestion copy to a temporary file first, which is either moved into place or deleted
+        .filter(path -> !path.getFileName().toString().endsWith(TEMPORARY_SUFFIX))
+        .map(path -> path.toAbsolutePath().normalize())
+        .toList();
+    }
+  }
+
+  private static String hash(final Path path, final Throttle throttle, final Findings findings) throws IOException, InterruptedException {
+    final MessageDigest digest = sha256();
+    final int blockSize = blockSize(path);
+    try (final FileChannel channel = open(path, blockSize > 0)) {
+      final long size = channel.size();
+      final ByteBuffer buffer = blockSize > 0
+        ? ByteBuffer.allocateDirect(BUFFER_SIZE + blockSize).alignedSlice(blockSize).limit(BUFFER_SIZE)
+        : ByteBuffer.allocateDirect(BUFFER_SIZE);
+      long position = 0;
+      // direct reads must start on a block boundary, so we stop at the size instead of reading to the end
+      while (position < size) {
+        buffer.clear().limit(BUFFER_SIZE);
+        final int read = channel.read(buffer, position);
+        if (read <= 0) {
+          break;
+        }
+        throttle.acquire(read);
+        digest.update(buffer.flip());
+        position += read;
+        findings.bytes.add(read);
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  // 0 if the file cannot be read directly
+  private static int blockSize(final Path path) {
+    try {
+      final long blockSize = Files.getFileStore(path).getBlockSize();
+      return blockSize > 0 && blockSize <= BUFFER_SIZE && BUFFER_SIZE % blockSize == 0 ? (int) blockSize : 0;
+    } catch (final IOException | UnsupportedOperationException e) {
+      return 0;
+    }
+  }
+
+  private static FileChannel open(final Path path, final boolean direct) throws IOException {
+    if (direct) {
+      try {
+        return FileChannel.open(path, StandardOpenOption.READ, ExtendedOpenOption.DIRECT);
+      } catch (final IOException | UnsupportedOperationException e) {
+        // some file systems, such as tmpfs, do not support direct I/O
+      }
+    }
+    return FileChannel.open(path, StandardOpenOption.READ);
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void gauge(final MeterRegistry metrics, final String result, final ToDoubleFunction<IntegrityReport> value) {
+    Gauge.builder("bibliothek.storage.files", this, scanner -> {
+      final IntegrityReport report = scanner.report;
+      return report != null ? value.applyAsDouble(report) : Double.NaN;
+    })
+      .description("Files with problems found by the last storage scan")
+      .tag("result", result)
+      .register(metrics);
+  }
+
+  private static final class Findings {
+    final LongAdder verified = new LongAdder();
+    final LongAdder bytes = new LongAdder();
+    final LongAdder missing = new LongAdder();
+    final LongAdder mismatched = new LongAdder();
+    final LongAdder orphaned = new LongAdder();
+    final LongAdder unreadable = new LongAdder();
+    final List<String> missingFiles = Collections.synchronizedList(new ArrayList<>());
+    final List<String> mismatchedFiles = Collections.synchronizedList(new ArrayList<>());
+    final List<String> orphanedFiles = Collections.synchronizedList(new ArrayList<>());
+    final List<String> unreadableFiles = Collections.synchronizedList(new ArrayList<>());
+    private final Path root;
+
+    Findings(final Path root) {
+      this.root = root;
+    }
+
+    void missing(final Path path) {
+      this.add(this.missing, this.missingFiles, path);
+    }
+
+    void mismatched(final Path path) {
+      this.add(this.mismatched, this.mismatchedFiles, path);
+    }
+
+    void orphaned(final Path path) {
+      this.add(this.orphaned, this.orphanedFiles, path);
+    }
+
+    void unreadable(final Path path) {
+      this.add(this.unreadable, this.unreadableFiles, path);
+    }
+
+    private void add(final LongAdder count, final List<String> examples, final Path path) {
+      count.increment();
+      if (examples.size() < EXAMPLES) {
+        examples.add(this.root.relativize(path).toString());
+      }
+    }
+
+    IntegrityReport report(final Instant started) {
+      return new IntegrityReport(
+        started,
+        Instant.now(),
+        this.verified.sum(),
+        this.bytes.sum(),
+        this.missing.sum(),
+        this.mismatched.sum(),
+        this.orphaned.sum(),
+        this.unreadable.sum(),
+        List.copyOf(this.missingFiles),
+        List.copyOf(this.mismatchedFiles),
+        List.copyOf(this.orphanedFiles),
+        List.copyOf(this.unreadableFiles)
+      );
+    }
+  }
+}
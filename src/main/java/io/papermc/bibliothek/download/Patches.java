@@ -0,0 +1,226 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.download;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.papermc.bibliothek.configuration.PatchConfiguration;
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.exception.PatchNotFound;
+import io.papermc.bibliothek.exception.PatchPending;
+import io.sigpipe.jbsdiff.Diff;
+import io.sigpipe.jbsdiff.InvalidHeaderException;
+import io.sigpipe.jbsdiff.Patch;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Binary patches between the downloads of two builds, generated lazily and stored next to the downloads.
+ *
+ * <p>The first request for a patch only schedules its generation - diffing holds both files,
+ * and several times the size of the older one, in memory, so patches are generated on a small
+ * pool with a bounded queue, and requests that do not fit are simply asked to come back.</p>
+ *
+ * <p>Both files are checked against their hashes before they are diffed, and every patch is
+ * applied once before it is stored, so a patch that does not reproduce the target exactly is
+ * never served. A patch that would not save enough compared to the full download is
+ * remembered as such, and not generated again. A patch that could not be generated is not
+ * attempted again until {@link PatchConfiguration#getFailureBackoff()} has passed.</p>
+ */
+@Component
+public class Patches implements DisposableBean {
+  private static final Logger LOGGER = LoggerFactory.getLogger(Patches.class);
+  private final PatchConfiguration configuration;
+  private final DownloadStorage storage;
+  private final Set<Path> generating = ConcurrentHashMap.newKeySet();
+  private final ThreadPoolExecutor generator;
+  private final Meter.MeterProvider<Counter> generated;
+
+  @Autowired
+  private Patches(
+    final PatchConfiguration configuration,
+    final DownloadStorage storage,
+    final MeterRegistry metrics
+  ) {
+    this.configuration = configuration;
+    this.storage = storage;
+    this.generator = new ThreadPoolExecutor(
+      configuration.getParallelism(),
+      configuration.getParallelism(),
+      0,
+      TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(configuration.getQueue()),
+      runnable -> {
+        final Thread thread = new Thread(runnable, "bibliothek-patches");
+        thread.setDaemon(true);
+        return thread;
+      }
+    );
+    this.generated = Counter.builder("bibliothek.patches.generated")
+      .description("Patches generated, by outcome")
+      .withRegistry(metrics);
+  }
+
+  public boolean enabled() {
+    return this.configuration.isEnabled();
+  }
+
+  /**
+   * Gets the patch from one download to another, scheduling its generation if it does not exist yet.
+   *
+   * @param sourceFile the file the patch applies to
+   * @param source the download the patch applies to
+   * @param targetFile the file the patch produces
+   * @param target the download the patch produces
+   * @return the path of the patch
+   * @throws PatchNotFound if there is no patch worth serving
+   * @throws PatchPending if the patch is not available yet
+   */
+  public Path get(final Path sourceFile, final Build.Download source, final Path targetFile, final Build.Download target) {
+    if (!this.enabled() || source.sha256().equals(target.sha256())) {
+      throw new PatchNotFound();
+    }
+    final Path patch = this.storage.patch(source, target);
+    if (Files.isRegularFile(patch)) {
+      return patch;
+    }
+    if (Files.exists(skipped(patch)) || this.failedRecently(patch)) {
+      throw new PatchNotFound();
+    }
+    if (this.generating.add(patch)) {
+      try {
+        this.generator.execute(() -> {
+          try {
+            this.generate(sourceFile, source, targetFile, target, patch);
+          } finally {
+            this.generating.remove(patch);
+          }
+        });
+      } catch (final RejectedExecutionException e) {
+        this.generating.remove(patch);
+      }
+    }
+    throw new PatchPending(this.configuration.getRetryAfter());
+  }
+
+  @Override
+  public void destroy() {
+    this.generator.shutdownNow();
+  }
+
+  private void generate(final Path sourceFile, final Build.Download source, final Path targetFile, final Build.Download target, final Path patch) {
+    // another request may have scheduled the same patch just before the last one finished
+    if (Files.isRegularFile(patch)) {
+      return;
+    }
+    try {
+      final byte[] from = read(sourceFile, source.sha256());
+      final byte[] to = read(targetFile, target.sha256());
+      final ByteArrayOutputStream diff = new ByteArrayOutputStream();
+      Diff.diff(from, to, diff);
+      final byte[] bytes = diff.toByteArray();
+
+      final ByteArrayOutputStream applied = new ByteArrayOutputStream(to.length);
+      Patch.patch(from, bytes, applied);
+      if (!Arrays.equals(applied.toByteArray(), to)) {
+        throw new IOException("Patch from " + sourceFile + " does not reproduce " + targetFile);
+      }
+
+      if (bytes.length > to.length * this.configuration.getMaxRatio()) {
+        Files.createDirectories(patch.getParent());
+        Files.write(skipped(patch), new byte[0]);
+        this.generated.withTag("result", "skipped").increment();
+      } else {
+        this.storage.store(new ByteArrayInputStream(bytes), patch, null);
+        this.generated.withTag("result", "stored").increment();
+      }
+    } catch (final IOException | CompressorException | InvalidHeaderException | RuntimeException e) {
+      LOGGER.warn("Could not generate patch from {} to {}", sourceFile, targetFile, e);
+      this.generated.withTag("result", "failed").increment();
+      try {
+        Files.createDirectories(patch.getParent());
+        // the modification time is when it failed
+        Files.write(failed(patch), new byte[0]);
+      } catch (final IOException f) {
+        LOGGER.debug("Could not remember that {} failed", patch, f);
+      }
+    }
+  }
+
+  private boolean failedRecently(final Path patch) {
+    try {
+      final Instant failed = Files.getLastModifiedTime(failed(patch)).toInstant();
+      return failed.plus(this.configuration.getFailureBackoff()).isAfter(Instant.now());
+    } catch (final IOException e) {
+      // most likely it never failed
+      return false;
+    }
+  }
+
+  private static byte[] read(final Path file, final String sha256) throws IOException {
+    final byte[] bytes = Files.readAllBytes(file);
+    final String actual = HexFormat.of().formatHex(sha256().digest(bytes));
+    if (!actual.equals(sha256)) {
+      throw new IOException("Expected sha256 " + sha256 + " for " + file + ", but was " + actual);
+    }
+    return bytes;
+  }
+
+  private static Path skipped(final Path patch) {
+    return patch.resolveSibling(patch.getFileName() + ".skip");
+  }
+
+  private static Path failed(final Path patch) {
+    return patch.resolveSibling(patch.getFileName() + ".failed");
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.download;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the rate at which bytes are read, across all threads sharing it.
+ */
+final class Throttle {
+  private final long bytesPerSecond;
+  private final Lock lock = new ReentrantLock();
+  private long next = System.nanoTime();
+
+  Throttle(final long bytesPerSecond) {
+    this.bytesPerSecond = bytesPerSecond;
+  }
+
+  /**
+   * Waits until {@code bytes} more bytes may be read.
+   *
+   * @param bytes the number of bytes
+   * @throws InterruptedException if interrupted while waiting
+   */
+  void acquire(final long bytes) throws InterruptedException {
+    if (this.bytesPerSecond <= 0) {
+      return;
+    }
+    final long now = System.nanoTime();
+    final long start;
+    this.lock.lock();
+    try {
+      start = Math.max(this.next, now);
+      this.next = start + TimeUnit.SECONDS.toNanos(bytes) / this.bytesPerSecond;
+    } finally {
+      this.lock.unlock();
+    }
+    TimeUnit.NANOSECONDS.sleep(start - now);
+  }
+}
@@ -24,7 +24,11 @@
 package io.papermc.bibliothek.exception;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -35,49 +39,93 @@ import org.springframework.web.servlet.NoHandlerFoundException;
 @ControllerAdvice
 class Advice {
   private final ObjectMapper json;
+  private final Meter.MeterProvider<Counter> errors;
 
   @Autowired
-  private Advice(final ObjectMapper json) {
+  private Advice(final ObjectMapper json, final MeterRegistry metrics) {
     this.json = json;
+    this.errors = Counter.builder("bibliothek.errors")
+      .description("Requests answered with an error, by the exception responsible")
+      .withRegistry(metrics);
   }
 
   @ExceptionHandler(BuildNotFound.class)
   @ResponseBody
   public ResponseEntity<?> buildNotFound(final BuildNotFound exception) {
-    return this.error(HttpStatus.NOT_FOUND, "Build not found.");
+    return this.error(exception, HttpStatus.NOT_FOUND, "Build not found.");
+  }
+
+  @ExceptionHandler(DownloadConflict.class)
+  @ResponseBody
+  public ResponseEntity<?> downloadConflict(final DownloadConflict exception) {
+    return this.error(exception, HttpStatus.CONFLICT, exception.getMessage());
   }
 
   @ExceptionHandler(DownloadFailed.class)
   @ResponseBody
   public ResponseEntity<?> downloadFailed(final DownloadFailed exception) {
-    return this.error(HttpStatus.INTERNAL_SERVER_ERROR, "An internal error occurred while serving your download.");
+    return this.error(exception, HttpStatus.INTERNAL_SERVER_ERROR, "An internal error occurred while serving your download.");
   }
 
   @ExceptionHandler(DownloadNotFound.class)
   @ResponseBody
   public ResponseEntity<?> downloadNotFound(final DownloadNotFound exception) {
-    return this.error(HttpStatus.NOT_FOUND, "Download not found.");
+    return this.error(exception, HttpStatus.NOT_FOUND, "Download not found.");
+  }
+
+  @ExceptionHandler(IngestRejected.class)
+  @ResponseBody
+  public ResponseEntity<?> ingestRejected(final IngestRejected exception) {
+    return this.error(exception, HttpStatus.BAD_REQUEST, exception.getMessage());
+  }
+
+  @ExceptionHandler(PatchNotFound.class)
+  @ResponseBody
+  public ResponseEntity<?> patchNotFound(final PatchNotFound exception) {
+    return this.error(exception, HttpStatus.NOT_FOUND, "Patch not found.");
+  }
+
+  @ExceptionHandler(PatchPending.class)
+  @ResponseBody
+  public ResponseEntity<?> patchPending(final PatchPending exception) {
+    final ResponseEntity<?> error = this.error(exception, HttpStatus.SERVICE_UNAVAILABLE, "Patch is being generated, try again later.");
+    return ResponseEntity.status(error.getStatusCode())
+      .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, exception.retryAfter().toSeconds())))
+      .body(error.getBody());
   }
 
   @ExceptionHandler(ProjectNotFound.class)
   @ResponseBody
   public ResponseEntity<?> projectNotFound(final ProjectNotFound exception) {
-    return this.error(HttpStatus.NOT_FOUND, "Project not found.");
+    return this.error(exception, HttpStatus.NOT_FOUND, "Project not found.");
+  }
+
+  @ExceptionHandler(StorageFailed.class)
+  @ResponseBody
+  public ResponseEntity<?> storageFailed(final StorageFailed exception) {
+    return this.error(exception, HttpStatus.INTERNAL_SERVER_ERROR, "An internal error occurred while storing the download.");
+  }
+
+  @ExceptionHandler(Unauthorized.class)
+  @ResponseBody
+  public ResponseEntity<?> unauthorized(final Unauthorized exception) {
+    return this.error(exception, HttpStatus.UNAUTHORIZED, "Unauthorized.");
   }
 
   @ExceptionHandler(VersionNotFound.class)
   @ResponseBody
   public ResponseEntity<?> versionNotFound(final VersionNotFound exception) {
-    return this.error(HttpStatus.NOT_FOUND, "Version not found.");
+    return this.error(exception, HttpStatus.NOT_FOUND, "Version not found.");
   }
 
   @ExceptionHandler(NoHandlerFoundException.class)
   @ResponseBody
   public ResponseEntity<?> endpointNotFound(final NoHandlerFoundException exception) {
-    return this.error(HttpStatus.NOT_FOUND, "Endpoint not found.");
+    return this.error(exception, HttpStatus.NOT_FOUND, "Endpoint not found.");
   }
 
-  private ResponseEntity<?> error(final HttpStatus status, final String error) {
+  private ResponseEntity<?> error(final Exception exception, final HttpStatus status, final String error) {
+    this.errors.withTags("exception", exception.getClass().getSimpleName(), "status", String.valueOf(status.value())).increment();
     return new ResponseEntity<>(
       this.json.createObjectNode()
         .put("error", error),
@@ -0,0 +1,75 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.ingest;
+
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.Version;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A build to ingest, with everything {@code cli/insertBuild.js} would otherwise be told.
+ *
+ * @param project the project name
+ * @param projectFriendlyName the friendly name of the project, used if the project is new
+ * @param versionGroup the version family name, used if the version is new
+ * @param version the version name
+ * @param build the build number
+ * @param channel the channel, or {@code null} for the default channel
+ * @param changes the changes since the previous build
+ * @param downloads the downloads, by type
+ */
+public record IngestBuild(
+  @NotNull @Pattern(regexp = "[a-z]+") String project,
+  @NotNull String projectFriendlyName,
+  @NotNull @Pattern(regexp = Version.PATTERN) String versionGroup,
+  @NotNull @Pattern(regexp = Version.PATTERN) String version,
+  @Positive int build,
+  @Nullable Build.Channel channel,
+  @NotNull List<Build.Change> changes,
+  @NotEmpty Map<String, @Valid Download> downloads
+) {
+  /**
+   * A download to ingest.
+   *
+   * @param name the file name clients download it as
+   * @param sha256 the expected hash of the file
+   * @param source where the file is, relative to {@code app.ingest.source-path}, or {@code null} if it is already stored
+   */
+  public record Download(
+    @NotNull @Pattern(regexp = Build.Download.PATTERN) String name,
+    @NotNull @Pattern(regexp = "[a-f0-9]{64}") String sha256,
+    @Nullable String source
+  ) {
+    Build.Download toBuild() {
+      return new Build.Download(this.name, this.sha256);
+    }
+  }
+}
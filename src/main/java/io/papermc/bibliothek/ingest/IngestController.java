@@ -0,0 +1,73 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.ingest;
+
+import io.swagger.v3.oas.annotations.Hidden;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Accepts batches of builds from CI, authenticated by {@code app.ingest.token} through {@link IngestToken}.
+ *
+ * <p>Without a token, the endpoint does not exist.</p>
+ */
+@ConditionalOnProperty("app.ingest.token")
+@Hidden
+@RestController
+@RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+public class IngestController {
+  private final Ingestion ingestion;
+
+  @Autowired
+  private IngestController(final Ingestion ingestion) {
+    this.ingestion = ingestion;
+  }
+
+  @PostMapping(value = "/ingest/builds", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public IngestResponse ingest(
+    @RequestBody
+    @NotEmpty //
+    final List<@Valid IngestBuild> builds
+  ) {
+    return new IngestResponse(this.ingestion.ingest(builds));
+  }
+
+  /**
+   * The result of an ingestion.
+   *
+   * @param inserted for each build, in order, {@code true} if it was inserted or {@code false} if it already existed
+   */
+  record IngestResponse(
+    List<Boolean> inserted
+  ) {
+  }
+}
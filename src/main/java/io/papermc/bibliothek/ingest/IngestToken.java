@@ -0,0 +1,79 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.ingest;
+
+import io.papermc.bibliothek.configuration.IngestConfiguration;
+import io.papermc.bibliothek.exception.Unauthorized;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Objects;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Checks the bearer token of ingestion requests against {@code app.ingest.token}.
+ *
+ * <p>The token is checked before the handler is invoked, so that the body of an unauthorized
+ * request is never read, let alone parsed.</p>
+ */
+@Component
+@ConditionalOnProperty("app.ingest.token")
+class IngestToken implements HandlerInterceptor, WebMvcConfigurer {
+  private static final String BEARER = "Bearer ";
+  private final byte[] token;
+
+  @Autowired
+  private IngestToken(final IngestConfiguration configuration) {
+    this.token = Objects.requireNonNull(configuration.getToken(), "token").getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void addInterceptors(final InterceptorRegistry registry) {
+    registry.addInterceptor(this).addPathPatterns("/ingest/**");
+  }
+
+  @Override
+  public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response, final Object handler) {
+    this.authorize(request.getHeader(HttpHeaders.AUTHORIZATION));
+    return true;
+  }
+
+  private void authorize(final @Nullable String authorization) {
+    if (authorization == null || !authorization.startsWith(BEARER)) {
+      throw new Unauthorized();
+    }
+    // compared in constant time, so the token cannot be guessed one byte at a time
+    if (!MessageDigest.isEqual(this.token, authorization.substring(BEARER.length()).getBytes(StandardCharsets.UTF_8))) {
+      throw new Unauthorized();
+    }
+  }
+}
@@ -0,0 +1,304 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.ingest;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import io.papermc.bibliothek.configuration.IngestConfiguration;
+import io.papermc.bibliothek.database.change.CollectionChanged;
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.Project;
+import io.papermc.bibliothek.database.model.Version;
+import io.papermc.bibliothek.database.model.VersionFamily;
+import io.papermc.bibliothek.download.DownloadStorage;
+import io.papermc.bibliothek.exception.DownloadConflict;
+import io.papermc.bibliothek.exception.IngestRejected;
+import io.papermc.bibliothek.exception.StorageFailed;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Inserts batches of builds.
+ *
+ * <p>Files are copied first, in parallel, so that no build is ever visible before its files
+ * are. The database is then written with a single bulk write per collection, and a lookup per
+ * collection to learn the ids of projects, version families and versions.</p>
+ *
+ * <p>All writes are upserts - ingesting the same batch twice does not create duplicates, so a
+ * failed batch can simply be retried. Stored files are never replaced: a file that is already
+ * stored with the expected hash is not copied again, one with a different hash is a conflict.</p>
+ *
+ * <p>Invalidation is only published to this instance - the others learn about the new builds
+ * through their change streams, or once their caches expire.</p>
+ */
+@Component
+public class Ingestion {
+  private final IngestConfiguration configuration;
+  private final MongoTemplate mongo;
+  private final DownloadStorage storage;
+  private final ApplicationEventPublisher events;
+
+  @Autowired
+  private Ingestion(
+    final IngestConfiguration configuration,
+    final MongoTemplate mongo,
+    final DownloadStorage storage,
+    final ApplicationEventPublisher events
+  ) {
+    this.configuration = configuration;
+    this.mongo = mongo;
+    this.storage = storage;
+    this.events = events;
+  }
+
+  /**
+   * Ingests a batch of builds.
+   *
+   * @param builds the builds
+   * @return for each build, in order, whether it was inserted - {@code false} if it already existed
+   */
+  public List<Boolean> ingest(final List<IngestBuild> builds) {
+    this.copy(builds);
+
+    final Upserted<String> projects = this.upsertProjects(builds);
+    final Upserted<Key> families = this.upsertFamilies(builds, projects.ids());
+    final Upserted<Key> versions = this.upsertVersions(builds, projects.ids(), families.ids());
+    final Set<Integer> inserted = this.upsertBuilds(builds, projects.ids(), versions.ids());
+
+    if (projects.inserted() || families.inserted() || versions.inserted()) {
+      this.events.publishEvent(new CollectionChanged("versions", null));
+    }
+    builds.stream()
+      .map(build -> new Document("project", projects.ids().get(build.project())).append("version", versions.ids().get(new Key(build.project(), build.version()))))
+      .distinct()
+      .forEach(document -> this.events.publishEvent(new CollectionChanged("builds", document)));
+
+    final List<Boolean> results = new ArrayList<>(builds.size());
+    for (int i = 0; i < builds.size(); i++) {
+      results.add(inserted.contains(i));
+    }
+    return results;
+  }
+
+  private void copy(final List<IngestBuild> builds) {
+    final Path sources = this.configuration.getSourcePath();
+    final List<Copy> copies = new ArrayList<>();
+    for (final IngestBuild build : builds) {
+      for (final IngestBuild.Download download : build.downloads().values()) {
+        final Path target = this.storage.path(build.project(), build.version(), build.build(), download.toBuild());
+        if (download.source() == null) {
+          if (!Files.isRegularFile(target)) {
+            throw new IngestRejected(download.name() + " has no source and is not stored");
+          }
+          continue;
+        }
+        if (sources == null) {
+          throw new IngestRejected("Sources are not accepted, app.ingest.source-path is not set");
+        }
+        final Path source = sources.resolve(download.source()).normalize();
+        if (!source.startsWith(sources.normalize())) {
+          throw new IngestRejected(download.source() + " is outside of the source path");
+        }
+        if (!Files.isRegularFile(source)) {
+          throw new IngestRejected(download.source() + " does not exist");
+        }
+        copies.add(new Copy(source, target, download.sha256()));
+      }
+    }
+    final ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.configuration.getParallelism(), Math.max(copies.size(), 1)));
+    try {
+      final List<Future<?>> futures = new ArrayList<>(copies.size());
+      for (final Copy copy : copies) {
+        futures.add(executor.submit(() -> {
+          if (Files.isRegularFile(copy.target())) {
+            // in the content-addressed layout, the name already is the hash
+            if (!this.storage.deduplicates() && !copy.sha256().equals(DownloadStorage.hash(copy.target()))) {
+              throw new DownloadConflict(copy.target().getFileName() + " is already stored with a different sha256");
+            }
+            return null;
+          }
+          try (final InputStream in = Files.newInputStream(copy.source())) {
+            this.storage.store(in, copy.target(), copy.sha256());
+          }
+          return null;
+        }));
+      }
+      for (final Future<?> future : futures) {
+        future.get();
+      }
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof final IngestRejected cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof final DownloadConflict cause) {
+        throw cause;
+      }
+      // the request was fine, the disk was not
+      throw new StorageFailed("Could not copy a download", e.getCause());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StorageFailed("Interrupted while copying downloads", e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Upserted<String> upsertProjects(final List<IngestBuild> builds) {
+    final Map<String, IngestBuild> byName = builds.stream()
+      .collect(Collectors.toMap(IngestBuild::project, Function.identity(), (a, b) -> a));
+    final BulkOperations bulk = this.mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Project.class);
+    byName.forEach((name, build) -> bulk.upsert(
+      Query.query(Criteria.where("name").is(name)),
+      new Update().setOnInsert("name", name).setOnInsert("friendlyName", build.projectFriendlyName())
+    ));
+    final BulkWriteResult result = bulk.execute();
+    return new Upserted<>(
+      this.mongo.find(Query.query(Criteria.where("name").in(byName.keySet())), Project.class).stream()
+        .collect(Collectors.toMap(Project::name, Project::_id, (a, b) -> a)),
+      !result.getUpserts().isEmpty()
+    );
+  }
+
+  private Upserted<Key> upsertFamilies(final List<IngestBuild> builds, final Map<String, ObjectId> projects) {
+    final Set<Key> keys = builds.stream()
+      .map(build -> new Key(build.project(), build.versionGroup()))
+      .collect(Collectors.toCollection(LinkedHashSet::new));
+    final BulkOperations bulk = this.mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, VersionFamily.class);
+    for (final Key key : keys) {
+      final ObjectId project = projects.get(key.project());
+      bulk.upsert(
+        Query.query(Criteria.where("project").is(project).and("name").is(key.name())),
+        new Update().setOnInsert("project", project).setOnInsert("name", key.name())
+      );
+    }
+    final BulkWriteResult result = bulk.execute();
+    return new Upserted<>(
+      this.lookup(keys, projects, VersionFamily.class, VersionFamily::project, VersionFamily::name, VersionFamily::_id),
+      !result.getUpserts().isEmpty()
+    );
+  }
+
+  private Upserted<Key> upsertVersions(final List<IngestBuild> builds, final Map<String, ObjectId> projects, final Map<Key, ObjectId> families) {
+    final Map<Key, IngestBuild> keys = builds.stream()
+      .collect(Collectors.toMap(build -> new Key(build.project(), build.version()), Function.identity(), (a, b) -> a));
+    final BulkOperations bulk = this.mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Version.class);
+    keys.forEach((key, build) -> {
+      final ObjectId project = projects.get(key.project());
+      bulk.upsert(
+        Query.query(Criteria.where("project").is(project).and("name").is(key.name())),
+        new Update()
+          .setOnInsert("project", project)
+          .setOnInsert("group", families.get(new Key(build.project(), build.versionGroup())))
+          .setOnInsert("name", key.name())
+      );
+    });
+    final BulkWriteResult result = bulk.execute();
+    return new Upserted<>(
+      this.lookup(keys.keySet(), projects, Version.class, Version::project, Version::name, Version::_id),
+      !result.getUpserts().isEmpty()
+    );
+  }
+
+  // the indexes of the builds that were inserted
+  private Set<Integer> upsertBuilds(final List<IngestBuild> builds, final Map<String, ObjectId> projects, final Map<Key, ObjectId> versions) {
+    final Instant now = Instant.now();
+    final BulkOperations bulk = this.mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Build.class);
+    for (final IngestBuild build : builds) {
+      final ObjectId project = projects.get(build.project());
+      final ObjectId version = versions.get(new Key(build.project(), build.version()));
+      final Map<String, Build.Download> downloads = new HashMap<>();
+      build.downloads().forEach((type, download) -> downloads.put(Build.Download.key(type), download.toBuild()));
+      bulk.upsert(
+        Query.query(Criteria.where("project").is(project).and("version").is(version).and("number").is(build.build())),
+        new Update()
+          .setOnInsert("project", project)
+          .setOnInsert("version", version)
+          .setOnInsert("number", build.build())
+          .setOnInsert("time", now)
+          .setOnInsert("changes", build.changes())
+          .setOnInsert("downloads", downloads)
+          .setOnInsert("promoted", false)
+          .setOnInsert("channel", build.channel() != null ? build.channel() : Build.Channel.DEFAULT)
+      );
+    }
+    final BulkWriteResult result = bulk.execute();
+    return result.getUpserts().stream()
+      .map(BulkWriteUpsert::getIndex)
+      .collect(Collectors.toSet());
+  }
+
+  private <T> Map<Key, ObjectId> lookup(
+    final Set<Key> keys,
+    final Map<String, ObjectId> projects,
+    final Class<T> type,
+    final Function<T, ObjectId> project,
+    final Function<T, String> name,
+    final Function<T, ObjectId> id
+  ) {
+    final Map<ObjectId, String> projectNames = projects.entrySet().stream()
+      .collect(Collectors.toMap(Map.Entry::getValue, Map.Entry::getKey));
+    final Set<String> names = keys.stream().map(Key::name).collect(Collectors.toSet());
+    final Map<Key, ObjectId> ids = new HashMap<>();
+    for (final T document : this.mongo.find(Query.query(Criteria.where("project").in(projects.values()).and("name").in(names)), type)) {
+      final Key key = new Key(projectNames.get(project.apply(document)), name.apply(document));
+      if (keys.contains(key)) {
+        ids.putIfAbsent(key, id.apply(document));
+      }
+    }
+    return ids;
+  }
+
+  private record Key(String project, String name) {
+  }
+
+  private record Upserted<K>(Map<K, ObjectId> ids, boolean inserted) {
+  }
+
+  private record Copy(Path source, Path target, String sha256) {
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.ingest;
+
+import io.papermc.bibliothek.catalog.Catalog;
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.Project;
+import io.papermc.bibliothek.database.model.Version;
+import io.papermc.bibliothek.download.DownloadStorage;
+import io.papermc.bibliothek.exception.DownloadConflict;
+import io.papermc.bibliothek.exception.StorageFailed;
+import io.swagger.v3.oas.annotations.Hidden;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.constraints.Pattern;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Accepts single files from CI, streamed straight into storage.
+ *
+ * <p>The request body is written to a temporary file next to its destination and hashed on the
+ * way, so the file is read exactly once and never held in memory. It is only moved into place
+ * once it is complete and, if an expected hash was given, matches it.</p>
+ *
+ * <p>Uploads never alter a published build - clients and caches hold on to its responses, and
+ * their validators do not cover downloads. Files are uploaded before their build is ingested
+ * through {@link IngestController}, with no source for the download. Once the build exists,
+ * only the files it was published with can be uploaded again.</p>
+ */
+@ConditionalOnProperty("app.ingest.token")
+@Hidden
+@RestController
+@RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+public class UploadController {
+  private final Catalog catalog;
+  private final DownloadStorage storage;
+  private final MongoTemplate mongo;
+
+  @Autowired
+  private UploadController(
+    final Catalog catalog,
+    final DownloadStorage storage,
+    final MongoTemplate mongo
+  ) {
+    this.catalog = catalog;
+    this.storage = storage;
+    this.mongo = mongo;
+  }
+
+  @PutMapping(
+    value = "/ingest/projects/{project:[a-z]+}/versions/{version:" + Version.PATTERN + "}/builds/{build:\\d+}/downloads/{download:" + Build.Download.PATTERN + "}",
+    consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE
+  )
+  public UploadResponse upload(
+    @PathVariable("project")
+    final String projectName,
+    @PathVariable("version")
+    final String versionName,
+    @PathVariable
+    final int build,
+    @PathVariable("download")
+    final String downloadName,
+    @RequestParam
+    @Pattern(regexp = "[a-z0-9-]+(\\.[a-z0-9-]+)*") //
+    final String type,
+    @RequestParam(required = false)
+    @Pattern(regexp = "[a-f0-9]{64}") //
+    final @Nullable String sha256,
+    final HttpServletRequest request
+  ) {
+    final Optional<Project> project = this.catalog.project(projectName);
+    final Optional<Version> version = project.flatMap(p -> this.catalog.version(p, versionName));
+    final @Nullable Build published = version
+      .map(v -> this.mongo.findOne(Query.query(Criteria.where("project").is(project.get()._id()).and("version").is(v._id()).and("number").is(build)), Build.class))
+      .orElse(null);
+    if (published != null) {
+      final Build.@Nullable Download existing = published.downloads().get(Build.Download.key(type));
+      if (existing == null || !existing.name().equals(downloadName) || sha256 != null && !sha256.equals(existing.sha256())) {
+        throw new DownloadConflict("Build " + build + " is already published without this " + type + " download");
+      }
+    }
+
+    final String actual;
+    try (final InputStream in = request.getInputStream()) {
+      actual = this.storage.store(in, projectName, versionName, build, downloadName, sha256);
+    } catch (final IOException e) {
+      throw new StorageFailed("Could not store " + downloadName, e);
+    }
+    if (published != null && !actual.equals(published.downloads().get(Build.Download.key(type)).sha256())) {
+      // without an expected hash, we only know once the file is stored - which did not replace anything
+      throw new DownloadConflict("Build " + build + " is already published with a different " + type + " download");
+    }
+    return new UploadResponse(downloadName, actual, published != null);
+  }
+
+  /**
+   * The result of an upload.
+   *
+   * @param name the file name
+   * @param sha256 the hash of the stored file
+   * @param published {@code true} if the build is already published with this download
+   */
+  record UploadResponse(
+    String name,
+    String sha256,
+    boolean published
+  ) {
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.metrics;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import io.papermc.bibliothek.catalog.Catalog;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Tags the {@code http.server.requests} timers with the project of the request.
+ *
+ * <p>Only projects in the catalog become tag values, so requests for made up projects cannot
+ * create an unbounded number of timers.</p>
+ */
+@Component
+public class ProjectObservationConvention extends DefaultServerRequestObservationConvention {
+  private static final String PROJECT = "project";
+  private static final KeyValue NONE = KeyValue.of(PROJECT, "none");
+  private static final KeyValue UNKNOWN = KeyValue.of(PROJECT, "unknown");
+  private final Catalog catalog;
+
+  @Autowired
+  private ProjectObservationConvention(final Catalog catalog) {
+    this.catalog = catalog;
+  }
+
+  @Override
+  public KeyValues getLowCardinalityKeyValues(final ServerRequestObservationContext context) {
+    return super.getLowCardinalityKeyValues(context).and(this.project(context));
+  }
+
+  private KeyValue project(final ServerRequestObservationContext context) {
+    if (!(context.getCarrier().getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE) instanceof final Map<?, ?> variables)
+      || !(variables.get(PROJECT) instanceof final String name)) {
+      return NONE;
+    }
+    return this.catalog.project(name).map(project -> KeyValue.of(PROJECT, project.name())).orElse(UNKNOWN);
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records virtual threads that stay pinned to their carrier thread, for example while blocking
+ * inside a {@code synchronized} block.
+ *
+ * <p>Each pinned period longer than {@link #THRESHOLD} is recorded in the
+ * {@code bibliothek.virtual.threads.pinned} timer, and the frame responsible is logged at debug.</p>
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadPinning implements SmartLifecycle {
+  private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadPinning.class);
+  private static final String EVENT = "jdk.VirtualThreadPinned";
+  private static final Duration THRESHOLD = Duration.ofMillis(20);
+  private final Timer pinned;
+  private volatile @Nullable RecordingStream stream;
+
+  @Autowired
+  private VirtualThreadPinning(final MeterRegistry metrics) {
+    this.pinned = Timer.builder("bibliothek.virtual.threads.pinned")
+      .description("Time virtual threads spent blocked while pinned to their carrier thread")
+      .register(metrics);
+  }
+
+  @Override
+  public void start() {
+    final RecordingStream stream = new RecordingStream();
+    stream.enable(EVENT).withThreshold(THRESHOLD).withStackTrace();
+    stream.onEvent(EVENT, this::pinned);
+    stream.startAsync();
+    this.stream = stream;
+  }
+
+  @Override
+  public void stop() {
+    final RecordingStream stream = this.stream;
+    if (stream != null) {
+      stream.close();
+      this.stream = null;
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return this.stream != null;
+  }
+
+  private void pinned(final RecordedEvent event) {
+    this.pinned.record(event.getDuration());
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Virtual thread pinned for {} at {}", event.getDuration(), culprit(event));
+    }
+  }
+
+  // the top frames are the JDK parking the thread, we want the code that got it there
+  private static String culprit(final RecordedEvent event) {
+    if (event.getStackTrace() == null) {
+      return "unknown";
+    }
+    return event.getStackTrace().getFrames().stream()
+      .filter(RecordedFrame::isJavaFrame)
+      .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber())
+      .filter(frame -> !frame.startsWith("java.") && !frame.startsWith("jdk.") && !frame.startsWith("sun."))
+      .findFirst()
+      .orElse("unknown");
+  }
+}
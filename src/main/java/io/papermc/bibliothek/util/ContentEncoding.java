@@ -0,0 +1,158 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.util;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A {@code Content-Encoding} that responses can be stored in ahead of time.
+ */
+public enum ContentEncoding {
+  BROTLI("br") {
+    @Override
+    public boolean available() {
+      // brotli is native code, which may not be available on this platform
+      return Brotli4jLoader.isAvailable();
+    }
+
+    @Override
+    public byte[] encode(final byte[] bytes) {
+      try {
+        // the best quality is too slow to spend on a request thread, even once
+        return Encoder.compress(bytes, new Encoder.Parameters().setQuality(9));
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  },
+  GZIP("gzip") {
+    @Override
+    public boolean available() {
+      return true;
+    }
+
+    @Override
+    public byte[] encode(final byte[] bytes) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+      try (final GZIPOutputStream gzip = new GZIPOutputStream(out) {
+        {
+          this.def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+      }) {
+        gzip.write(bytes);
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return out.toByteArray();
+    }
+  };
+
+  private final String token;
+
+  ContentEncoding(final String token) {
+    this.token = token;
+  }
+
+  public String token() {
+    return this.token;
+  }
+
+  public abstract boolean available();
+
+  public abstract byte[] encode(byte[] bytes);
+
+  /**
+   * Gets the validators of a response in an encoding.
+   *
+   * <p>Strong entity tags must differ between encodings of the same response, as the bytes differ.</p>
+   *
+   * @param encoding the encoding, or {@code null} for the unencoded response
+   * @param identity the validators of the unencoded response
+   * @return the validators
+   */
+  public static Validators validators(final @Nullable ContentEncoding encoding, final Validators identity) {
+    if (encoding == null) {
+      return identity;
+    }
+    final String etag = identity.etag();
+    return new Validators(etag.substring(0, etag.length() - 1) + "-" + encoding.token + '"', identity.lastModified());
+  }
+
+  /**
+   * Picks the encoding the client prefers from an {@code Accept-Encoding} header.
+   *
+   * @param header the header
+   * @param candidates the encodings to pick from, most preferred by us first
+   * @return the encoding, or {@code null} if the response should not be encoded
+   */
+  public static @Nullable ContentEncoding negotiate(final @Nullable String header, final Collection<ContentEncoding> candidates) {
+    if (header == null || header.isBlank()) {
+      return null;
+    }
+    @Nullable ContentEncoding best = null;
+    double bestQuality = 0;
+    for (final ContentEncoding candidate : candidates) {
+      final double quality = quality(header, candidate.token);
+      if (quality > bestQuality) {
+        best = candidate;
+        bestQuality = quality;
+      }
+    }
+    return best;
+  }
+
+  private static double quality(final String header, final String token) {
+    double wildcard = 0;
+    for (final String range : header.split(",")) {
+      final String[] parameters = range.split(";");
+      final String coding = parameters[0].trim().toLowerCase(Locale.ROOT);
+      double quality = 1;
+      for (int i = 1; i < parameters.length; i++) {
+        final String parameter = parameters[i].trim();
+        if (parameter.startsWith("q=")) {
+          try {
+            quality = Double.parseDouble(parameter.substring(2));
+          } catch (final NumberFormatException e) {
+            quality = 0;
+          }
+        }
+      }
+      if (coding.equals(token)) {
+        return quality;
+      } else if (coding.equals("*")) {
+        wildcard = quality;
+      }
+    }
+    return wildcard;
+  }
+}
@@ -26,9 +26,15 @@ package io.papermc.bibliothek.util;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.time.Instant;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.http.CacheControl;
 import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
 
 public final class HTTP {
   private HTTP() {
@@ -38,6 +44,42 @@ public final class HTTP {
     return ResponseEntity.ok().cacheControl(cache).body(response);
   }
 
+  public static <T> ResponseEntity<T> cachedOk(final T response, final CacheControl cache, final Validators validators) {
+    final ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(cache).eTag(validators.etag());
+    final Instant lastModified = validators.lastModified();
+    if (lastModified != null) {
+      builder.lastModified(lastModified);
+    }
+    return builder.body(response);
+  }
+
+  public static <T> ResponseEntity<T> cachedNotModified(final CacheControl cache) {
+    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cache).build();
+  }
+
+  public static ResponseEntity<byte[]> encodedOk(final byte[] body, final CacheControl cache, final Validators validators, final @Nullable ContentEncoding encoding) {
+    final ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(cache).eTag(validators.etag()).varyBy(HttpHeaders.ACCEPT_ENCODING);
+    final Instant lastModified = validators.lastModified();
+    if (lastModified != null) {
+      builder.lastModified(lastModified);
+    }
+    if (encoding != null) {
+      builder.header(HttpHeaders.CONTENT_ENCODING, encoding.token());
+    }
+    return builder.body(body);
+  }
+
+  public static <T> ResponseEntity<T> encodedNotModified(final CacheControl cache) {
+    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cache).varyBy(HttpHeaders.ACCEPT_ENCODING).build();
+  }
+
+  public static boolean checkNotModified(final ServletWebRequest request, final Validators validators) {
+    // we bring our own validators, there is no need to buffer the response to compute one
+    ShallowEtagHeaderFilter.disableContentCaching(request.getRequest());
+    final Instant lastModified = validators.lastModified();
+    return request.checkNotModified(validators.etag(), lastModified != null ? lastModified.toEpochMilli() : -1);
+  }
+
   public static CacheControl sMaxAgePublicCache(final Duration sMaxAge) {
     return CacheControl.empty()
       .cachePublic()
@@ -0,0 +1,77 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import org.jetbrains.annotations.Nullable;
+
+public record Validators(
+  String etag,
+  @Nullable Instant lastModified
+) {
+  /**
+   * Creates validators with a strong entity tag derived from {@code parts}.
+   *
+   * <p>The parts must describe the response deterministically, so that every instance hands
+   * out the same entity tag for the same data.</p>
+   *
+   * @param lastModified the last modification time, if known
+   * @param parts the parts
+   * @return the validators
+   */
+  public static Validators of(final @Nullable Instant lastModified, final Object... parts) {
+    final MessageDigest digest = sha256();
+    for (final Object part : parts) {
+      digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+    }
+    return new Validators(quote(HexFormat.of().formatHex(digest.digest(), 0, 16)), lastModified);
+  }
+
+  /**
+   * Gets these validators with a weak entity tag, for responses that are equivalent but not
+   * necessarily identical byte for byte.
+   *
+   * @return the validators
+   */
+  public Validators weak() {
+    return this.etag.startsWith("W/") ? this : new Validators("W/" + this.etag, this.lastModified);
+  }
+
+  public static String quote(final String etag) {
+    return '"' + etag + '"';
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
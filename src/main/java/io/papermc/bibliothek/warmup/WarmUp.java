@@ -0,0 +1,260 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.papermc.bibliothek.catalog.Catalog;
+import io.papermc.bibliothek.catalog.ResolvedBuild;
+import io.papermc.bibliothek.configuration.WarmUpConfiguration;
+import io.papermc.bibliothek.database.model.Build;
+import io.papermc.bibliothek.database.model.Project;
+import io.papermc.bibliothek.database.model.Version;
+import io.papermc.bibliothek.database.repository.BuildCollection;
+import io.papermc.bibliothek.download.DownloadStorage;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Warms up a new instance before it reports itself ready.
+ *
+ * <p>Spring Boot only marks the application as accepting traffic once every runner has
+ * returned, so the readiness probe stays down while we:</p>
+ *
+ * <ol>
+ *   <li>load the catalog,</li>
+ *   <li>read the newest builds of the newest versions of every project into the page cache, and</li>
+ *   <li>send every v2 endpoint requests over the local connector, which initializes the handler
+ *   mappings, fills the Mongo connection pool and gets the JIT going.</li>
+ * </ol>
+ *
+ * <p>Bundles and patches are left out: a bundle zips whole files, and a patch may have to be
+ * generated first - neither is worth delaying readiness for.</p>
+ *
+ * <p>Failures are logged, an instance that cannot warm up is still better than no instance.</p>
+ *
+ * <p>Warm-up requests carry a token only this instance knows, see {@link #isWarmUp(HttpServletRequest)},
+ * so that they are not counted as downloads and do not make files look popular.</p>
+ */
+@Component
+public class WarmUp implements ApplicationRunner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(WarmUp.class);
+  private static final int BUFFER_SIZE = 1024 * 1024;
+  private static final String HEADER = "X-Bibliothek-Warm-Up";
+  private static final String TOKEN = UUID.randomUUID().toString();
+  private static final int BATCH_SIZE = 10;
+  private final WarmUpConfiguration configuration;
+  private final Catalog catalog;
+  private final BuildCollection builds;
+  private final DownloadStorage storage;
+  private final WebServerApplicationContext context;
+  private final ObjectMapper json;
+
+  @Autowired
+  private WarmUp(
+    final WarmUpConfiguration configuration,
+    final Catalog catalog,
+    final BuildCollection builds,
+    final DownloadStorage storage,
+    final WebServerApplicationContext context,
+    final ObjectMapper json
+  ) {
+    this.configuration = configuration;
+    this.catalog = catalog;
+    this.builds = builds;
+    this.storage = storage;
+    this.context = context;
+    this.json = json;
+  }
+
+  /**
+   * Checks if a request was sent by the warm-up of this instance.
+   *
+   * @param request the request
+   * @return {@code true} if the request was sent by the warm-up
+   */
+  public static boolean isWarmUp(final HttpServletRequest request) {
+    return TOKEN.equals(request.getHeader(HEADER));
+  }
+
+  @Override
+  public void run(final ApplicationArguments args) {
+    if (!this.configuration.isEnabled()) {
+      return;
+    }
+    final long start = System.nanoTime();
+    final List<ResolvedBuild> latest;
+    try {
+      latest = this.latestBuilds();
+    } catch (final RuntimeException e) {
+      LOGGER.warn("Could not load the catalog, skipping warm-up", e);
+      return;
+    }
+    final long deadline = start + this.configuration.getTimeout().toNanos();
+    final int touched = this.touch(latest, deadline);
+    final int requests = this.exercise(this.paths(latest), deadline);
+    LOGGER.info("Warmed up in {}ms: read {} files and sent {} requests", Duration.ofNanos(System.nanoTime() - start).toMillis(), touched, requests);
+  }
+
+  private List<ResolvedBuild> latestBuilds() {
+    final List<ResolvedBuild> latest = new ArrayList<>();
+    for (final Project project : this.catalog.projects()) {
+      final List<Version> versions = this.catalog.versions(project).stream()
+        .sorted(Version.COMPARATOR.reversed())
+        .limit(this.configuration.getVersions())
+        .toList();
+      for (final Version version : versions) {
+        this.builds.findFirstByProjectAndVersionOrderByNumberDesc(project._id(), version._id())
+          .ifPresent(build -> latest.add(new ResolvedBuild(project, version, build)));
+      }
+    }
+    return latest;
+  }
+
+  private int touch(final List<ResolvedBuild> latest, final long deadline) {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    int touched = 0;
+    for (final ResolvedBuild resolved : latest) {
+      for (final Build.Download download : resolved.build().downloads().values()) {
+        if (System.nanoTime() > deadline) {
+          return touched;
+        }
+        try {
+          final Path path = this.storage.path(resolved, download);
+          try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer.clear()) >= 0) {
+              // we only want the file in the page cache
+            }
+            touched++;
+          }
+        } catch (final IOException | RuntimeException e) {
+          LOGGER.debug("Could not read {}", download.name(), e);
+        }
+      }
+    }
+    return touched;
+  }
+
+  private List<Request> paths(final List<ResolvedBuild> latest) {
+    final List<Request> requests = new ArrayList<>();
+    requests.add(new Request("/v2/projects"));
+    for (final ResolvedBuild resolved : latest) {
+      final String project = "/v2/projects/" + resolved.project().name();
+      final String version = project + "/versions/" + resolved.version().name();
+      final String build = version + "/builds/" + resolved.build().number();
+      requests.add(new Request(project));
+      requests.add(new Request(version));
+      requests.add(new Request(version + "/builds"));
+      requests.add(new Request(version + "/builds?limit=10&order=desc"));
+      requests.add(new Request(version + "/builds/latest"));
+      requests.add(new Request(build));
+      this.catalog.families(resolved.project()).stream()
+        .filter(family -> family._id().equals(resolved.version().group()))
+        .findFirst()
+        .ifPresent(family -> {
+          requests.add(new Request(project + "/version_group/" + family.name()));
+          requests.add(new Request(project + "/version_group/" + family.name() + "/builds"));
+        });
+      resolved.build().downloads().values().stream()
+        .min(Comparator.comparing(Build.Download::name))
+        // a single byte is enough to go through the whole download path
+        .ifPresent(download -> requests.add(new Request(build + "/downloads/" + download.name(), "bytes=0-0")));
+    }
+    if (!latest.isEmpty()) {
+      try {
+        requests.add(new Request("/v2/builds", null, this.json.writeValueAsString(latest.stream()
+          .limit(BATCH_SIZE)
+          .map(resolved -> Map.of("project", resolved.project().name(), "version", resolved.version().name(), "build", resolved.build().number()))
+          .toList())));
+      } catch (final JsonProcessingException e) {
+        LOGGER.debug("Could not write the build batch", e);
+      }
+    }
+    return requests;
+  }
+
+  private int exercise(final List<Request> requests, final long deadline) {
+    final URI base = URI.create("http://localhost:" + this.context.getWebServer().getPort());
+    final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    int sent = 0;
+    for (int i = 0; i < this.configuration.getIterations(); i++) {
+      for (final Request request : requests) {
+        if (System.nanoTime() > deadline) {
+          return sent;
+        }
+        try {
+          final HttpRequest.Builder builder = HttpRequest.newBuilder(base.resolve(request.path())).header(HEADER, TOKEN);
+          if (request.body() != null) {
+            builder.POST(HttpRequest.BodyPublishers.ofString(request.body())).header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+          }
+          if (request.range() != null) {
+            builder.header(HttpHeaders.RANGE, request.range());
+          }
+          client.send(builder.build(), HttpResponse.BodyHandlers.discarding());
+          sent++;
+        } catch (final IOException | RuntimeException e) {
+          LOGGER.debug("Warm-up request to {} failed", request.path(), e);
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return sent;
+        }
+      }
+    }
+    return sent;
+  }
+
+  private record Request(String path, @Nullable String range, @Nullable String body) {
+    Request(final String path) {
+      this(path, null, null);
+    }
+
+    Request(final String path, final String range) {
+      this(path, range, null);
+    }
+  }
+}
@@ -0,0 +1,339 @@
+/*
+ * This file is part of bibliothek, licensed under the MIT License.
+ *
+ * Copyright (c) 2019-2024 PaperMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.papermc.bibliothek.download;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.papermc.bibliothek.configuration.AppConfiguration;
+import io.papermc.bibliothek.configuration.CacheConfiguration;
+import io.papermc.bibliothek.util.Validators;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DownloadWriterTest {
+  private static final int SIZE = 100;
+  private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+  private static final String MULTIPART = "multipart/byteranges; boundary=";
+  private static final Instant LAST_MODIFIED = Instant.parse("2024-01-01T00:00:00Z");
+  private static final Validators VALIDATORS = new Validators(Validators.quote("abc"), LAST_MODIFIED);
+  private static final CacheControl CACHE = CacheControl.maxAge(Duration.ofDays(7));
+  private final byte[] contents = new byte[SIZE];
+  private HotArtifacts artifacts;
+  private DownloadWriter writer;
+  private Path file;
+
+  @BeforeEach
+  void setUp(@TempDir final Path directory) throws IOException {
+    for (int i = 0; i < SIZE; i++) {
+      this.contents[i] = (byte) i;
+    }
+    this.file = Files.write(directory.resolve("paper-1.20.4-497.jar"), this.contents);
+    this.artifacts = new HotArtifacts(new CacheConfiguration(), new SimpleMeterRegistry());
+    this.writer = new DownloadWriter(new AppConfiguration(), this.artifacts);
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.artifacts.destroy();
+  }
+
+  @Test
+  void wholeFile() throws IOException {
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    assertEquals(SIZE, this.write(request(), response));
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals(SIZE, response.getContentLengthLong());
+    assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+    assertEquals(VALIDATORS.etag(), response.getHeader(HttpHeaders.ETAG));
+    assertArrayEquals(this.contents, response.getContentAsByteArray());
+  }
+
+  @Test
+  void singleRange() throws IOException {
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    assertEquals(10, this.write(request("bytes=10-19"), response));
+    assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+    assertEquals("bytes 10-19/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    assertArrayEquals(Arrays.copyOfRange(this.contents, 10, 20), response.getContentAsByteArray());
+  }
+
+  @Test
+  void openEndedRange() throws IOException {
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    this.write(request("bytes=90-"), response);
+    assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+    assertEquals("bytes 90-99/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    assertArrayEquals(Arrays.copyOfRange(this.contents, 90, 100), response.getContentAsByteArray());
+  }
+
+  @Test
+  void suffixRange() throws IOException {
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    this.write(request("bytes=-5"), response);
+    assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+    assertEquals("bytes 95-99/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    assertArrayEquals(Arrays.copyOfRange(this.contents, 95, 100), response.getContentAsByteArray());
+  }
+
+  @Test
+  void suffixRangeLargerThanFile() throws IOException {
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    this.write(request("bytes=-500"), response);
+    assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+    assertEquals("bytes 0-99/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    assertArrayEquals(this.contents, response.getContentAsByteArray());
+  }
+
+  @Test
+  void unsatisfiableRange() throws IOException {
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    assertEquals(0, this.write(request("bytes=100-199"), response));
+    assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), response.getStatus());
+    assertEquals("bytes */100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    assertEquals(0, response.getContentAsByteArray().length);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"bytes=abc", "bytes=20-10", "items=0-9", "0-9"})
+  void invalidRangeIsIgnored(final String range) throws IOException {
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    assertEquals(SIZE, this.write(request(range), response));
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+    assertArrayEquals(this.contents, response.getContentAsByteArray());
+  }
+
+  @Test
+  void overlappingRanges() throws IOException {
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    assertEquals(0, this.write(request("bytes=0-99,0-99"), response));
+    assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), response.getStatus());
+    assertEquals("bytes */100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+  }
+
+  @Test
+  void multipleRanges() throws IOException {
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    final long length = this.write(request("bytes=0-1,98-99"), response);
+    assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+    assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+    assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+    final String body = response.getContentAsString(StandardCharsets.ISO_8859_1);
+    assertEquals(length, response.getContentAsByteArray().length);
+    assertEquals(length, response.getContentLengthLong());
+    assertTrue(body.contains("Content-Range: bytes 0-1/100\r\n\r\n\u0000\u0001"));
+    assertTrue(body.contains("Content-Range: bytes 98-99/100\r\n\r\nbc"));
+    final String boundary = response.getContentType().substring("multipart/byteranges; boundary=".length());
+    assertTrue(body.endsWith("\r\n--" + boundary + "--\r\n"));
+  }
+
+  @Test
+  void ifRangeMatchingEntityTag() throws IOException {
+    final MockHttpServletRequest request = request("bytes=0-9");
+    request.addHeader(HttpHeaders.IF_RANGE, VALIDATORS.etag());
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    this.write(request, response);
+    assertEquals(HttpStatus.PARTIAL_CONTENT.value(), response.getStatus());
+  }
+
+  @Test
+  void ifRangeMismatchingEntityTag() throws IOException {
+    final MockHttpServletRequest request = request("bytes=0-9");
+    request.addHeader(HttpHeaders.IF_RANGE, Validators.quote("other"));
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    assertEquals(SIZE, this.write(request, response));
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertArrayEquals(this.contents, response.getContentAsByteArray());
+  }
+
+  @Test
+  void ifRangeWeakEntityTag() throws IOException {
+    final MockHttpServletRequest request = request("bytes=0-9");
+    request.addHeader(HttpHeaders.IF_RANGE, "W/" + VALIDATORS.etag());
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    this.write(request, response);
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+  }
+
+  @Test
+  void ifRangeDate() throws IOException {
+    final MockHttpServletRequest matching = request("bytes=0-9");
+    matching.addHeader(HttpHeaders.IF_RANGE, "Mon, 01 Jan 2024 00:00:00 GMT");
+    final MockHttpServletResponse partial = new MockHttpServletResponse();
+    this.write(matching, partial);
+    assertEquals(HttpStatus.PARTIAL_CONTENT.value(), partial.getStatus());
+
+    final MockHttpServletRequest stale = request("bytes=0-9");
+    stale.addHeader(HttpHeaders.IF_RANGE, "Sun, 31 Dec 2023 00:00:00 GMT");
+    final MockHttpServletResponse full = new MockHttpServletResponse();
+    this.write(stale, full);
+    assertEquals(HttpStatus.OK.value(), full.getStatus());
+  }
+
+  @Test
+  void head() throws IOException {
+    final MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/");
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    assertEquals(0, this.write(request, response));
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals(SIZE, response.getContentLengthLong());
+    assertEquals(0, response.getContentAsByteArray().length);
+  }
+
+  @ParameterizedTest
+  @NullSource
+  @ValueSource(strings = {"bytes=10-19", "bytes=-5", "bytes=0-1,98-99"})
+  void transfersSendTheSameResponse(final @Nullable String range) throws IOException {
+    final Sent blocking = this.send(range, false, false);
+    assertEquals(blocking, this.send(range, true, false));
+    assertEquals(blocking, this.send(range, false, true));
+  }
+
+  // sends the file through one of the transfers, with the multipart boundary taken out
+  private Sent send(final @Nullable String range, final boolean async, final boolean sendfile) throws IOException {
+    final MockHttpServletRequest request = range != null ? request(range) : request();
+    request.setAsyncSupported(async);
+    if (sendfile) {
+      request.setAttribute(SENDFILE_SUPPORTED, true);
+    }
+    final MockHttpServletResponse response = new MockHttpServletResponse();
+    final NonBlockingResponse nonBlocking = new NonBlockingResponse(response);
+    final long length = this.writer.write(request, async ? nonBlocking : response, this.file, this.file.getFileName().toString(), VALIDATORS, CACHE);
+    assertEquals(async, nonBlocking.listened);
+    byte[] body = response.getContentAsByteArray();
+    final @Nullable Object filename = request.getAttribute(SENDFILE_FILENAME);
+    // a single region goes to the connector, anything else falls back to writing it ourselves
+    assertEquals(sendfile && (range == null || !range.contains(",")), filename != null);
+    if (filename != null) {
+      assertEquals(0, body.length);
+      final long start = (long) request.getAttribute(SENDFILE_START);
+      final long end = (long) request.getAttribute(SENDFILE_END);
+      body = Arrays.copyOfRange(Files.readAllBytes(Path.of((String) filename)), (int) start, (int) end);
+    }
+    assertEquals(body.length, length);
+    assertEquals(body.length, response.getContentLengthLong());
+    final String type = response.getContentType();
+    final String boundary = type != null && type.startsWith(MULTIPART) ? type.substring(MULTIPART.length()) : null;
+    final Map<String, List<String>> headers = new TreeMap<>();
+    for (final String name : response.getHeaderNames()) {
+      // checked against the body above, and boundaries differ in length
+      if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+        continue;
+      }
+      headers.put(name, response.getHeaders(name).stream().map(value -> boundary != null ? value.replace(boundary, "boundary") : value).toList());
+    }
+    final String content = new String(body, StandardCharsets.ISO_8859_1);
+    return new Sent(response.getStatus(), headers, boundary != null ? content.replace(boundary, "boundary") : content);
+  }
+
+  private long write(final MockHttpServletRequest request, final MockHttpServletResponse response) throws IOException {
+    return this.writer.write(request, response, this.file, this.file.getFileName().toString(), VALIDATORS, CACHE);
+  }
+
+  private static MockHttpServletRequest request() {
+    return new MockHttpServletRequest("GET", "/");
+  }
+
+  private static MockHttpServletRequest request(final String range) {
+    final MockHttpServletRequest request = request();
+    request.addHeader(HttpHeaders.RANGE, range);
+    return request;
+  }
+
+  private record Sent(int status, Map<String, List<String>> headers, String body) {
+  }
+
+  // a connector that can always take more, calling the write listener back straight away
+  private static final class NonBlockingResponse extends HttpServletResponseWrapper {
+    private final ServletOutputStream out;
+    private boolean listened;
+
+    NonBlockingResponse(final MockHttpServletResponse response) {
+      super(response);
+      final ServletOutputStream delegate = response.getOutputStream();
+      this.out = new ServletOutputStream() {
+        @Override
+        public boolean isReady() {
+          return true;
+        }
+
+        @Override
+        public void setWriteListener(final WriteListener listener) {
+          NonBlockingResponse.this.listened = true;
+          try {
+            listener.onWritePossible();
+          } catch (final IOException e) {
+            listener.onError(e);
+          }
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+          delegate.write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+          delegate.write(b, off, len);
+        }
+      };
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+      return this.out;
+    }
+  }
+}